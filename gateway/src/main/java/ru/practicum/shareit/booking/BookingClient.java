@@ -1,43 +1,59 @@
 package ru.practicum.shareit.booking;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ResponseCache;
 
+import java.util.List;
 import java.util.Map;
 
 @Service
 public class BookingClient extends BaseClient {
     private static final String API_PREFIX = "/bookings";
 
-    public BookingClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public BookingClient(@Value("${shareit-server.url}") String serverUrl, WebClient.Builder builder,
+                         ResponseCache responseCache) {
         super(
                 builder
-                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .baseUrl(serverUrl + API_PREFIX)
+                        .build(),
+                responseCache,
+                API_PREFIX
         );
     }
 
-    public ResponseEntity<Object> save(BookingDto bookingDto, Long userId) {
+    public Mono<ResponseEntity<byte[]>> save(BookingDto bookingDto, Long userId) {
         return post("", userId, bookingDto);
     }
 
-    public ResponseEntity<Object> approve(Long bookingId, Boolean approved, Long userId) {
+    public Mono<ResponseEntity<byte[]>> approve(Long bookingId, Boolean approved, Long userId) {
         Map<String, Object> parameters = Map.of("approved", approved);
         return patch("/" + bookingId + "?approved={approved}", userId, parameters, null);
     }
 
-    public ResponseEntity<Object> getById(Long bookingId, Long userId) {
-        return get("/" + bookingId, userId);
+    public Mono<ResponseEntity<byte[]>> approveBatch(List<Long> bookingIds, Boolean approved, Long userId) {
+        Map<String, Object> parameters = Map.of("approved", approved);
+        return patch("/batch?approved={approved}", userId, parameters, bookingIds);
+    }
+
+    public Mono<ResponseEntity<byte[]>> getById(Long bookingId, Long userId, String ifNoneMatch) {
+        return get("/" + bookingId, userId, null, ifNoneMatch);
     }
 
-    public ResponseEntity<Object> getAllByUser(String state, Integer from, Integer size, Long userId) {
+    public Mono<ResponseEntity<byte[]>> getAllByUser(String state, Integer from, Integer size, String after, Long userId) {
+        if (after != null) {
+            Map<String, Object> parameters = Map.of(
+                    "state", state,
+                    "size", size,
+                    "after", after
+            );
+            return get("?state={state}&size={size}&after={after}", userId, parameters);
+        }
         Map<String, Object> parameters = Map.of(
                 "state", state,
                 "from", from,
@@ -46,7 +62,15 @@ public class BookingClient extends BaseClient {
         return get("?state={state}&from={from}&size={size}", userId, parameters);
     }
 
-    public ResponseEntity<Object> getAllForOwner(String state, Integer from, Integer size, Long owner) {
+    public Mono<ResponseEntity<byte[]>> getAllForOwner(String state, Integer from, Integer size, String after, Long owner) {
+        if (after != null) {
+            Map<String, Object> parameters = Map.of(
+                    "state", state,
+                    "size", size,
+                    "after", after
+            );
+            return get("/owner?state={state}&size={size}&after={after}", owner, parameters);
+        }
         Map<String, Object> parameters = Map.of(
                 "state", state,
                 "from", from,
@@ -0,0 +1,120 @@
+package ru.practicum.shareit.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш успешных ответов сервера на GET-запросы, прошедшие через шлюз.
+ * Ключ - раздел API, путь с параметрами и X-Sharer-User-Id.
+ * Записи сбрасываются по размеру и времени жизни, а также при изменениях, выполненных через этот шлюз.
+ */
+@Slf4j
+@Component
+public class ResponseCache {
+    private static final String TAG = "GATEWAY RESPONSE CACHE";
+
+    //Разделы, в ответах которых отображаются данные других разделов
+    private static final Map<String, List<String>> DEPENDENT_REGIONS = Map.of(
+            "/users", List.of("/items", "/requests"),
+            "/items", List.of("/requests"),
+            "/bookings", List.of("/items"),
+            "/requests", List.of()
+    );
+
+    private final Cache<Key, ResponseEntity<byte[]>> responses;
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public ResponseCache(MeterRegistry meterRegistry,
+                         @Value("${shareit.response-cache.maximum-size:10000}") long maximumSize,
+                         @Value("${shareit.response-cache.ttl:30s}") Duration ttl) {
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "gateway.responses");
+    }
+
+    @Nullable
+    public ResponseEntity<byte[]> get(String region, String path, @Nullable Long userId) {
+        return responses.getIfPresent(new Key(region, path, userId));
+    }
+
+    /**
+     * Номер поколения раздела, запоминается до отправки запроса на сервер.
+     */
+    public long generation(String region) {
+        return generations.computeIfAbsent(region, r -> new AtomicLong()).get();
+    }
+
+    //Ответ не сохраняется, если раздел успел измениться, пока запрос выполнялся
+    public void put(String region, String path, @Nullable Long userId, long generation,
+                    ResponseEntity<byte[]> response) {
+        if (response.getStatusCode().is2xxSuccessful() && generation(region) == generation) {
+            responses.put(new Key(region, path, userId), response);
+        }
+    }
+
+    public void invalidate(String region, String path) {
+        String resource = resource(path);
+        bump(region);
+        responses.asMap().keySet().removeIf(key -> key.getRegion().equals(region)
+                && (key.isCollection() || !resource.isEmpty() && resource.equals(key.getResource())));
+
+        List<String> dependents = DEPENDENT_REGIONS.getOrDefault(region, List.of());
+        dependents.forEach(this::bump);
+        responses.asMap().keySet().removeIf(key -> dependents.contains(key.getRegion()));
+        log.debug("{} сброшены записи после изменения {}{}", TAG, region, path);
+    }
+
+    private void bump(String region) {
+        generations.computeIfAbsent(region, r -> new AtomicLong()).incrementAndGet();
+    }
+
+    //Первый сегмент пути, если это id ресурса, иначе пустая строка
+    private static String resource(String path) {
+        int end = path.length();
+        for (int i = 1; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '/' || c == '?') {
+                end = i;
+                break;
+            }
+        }
+        String segment = path.startsWith("/") ? path.substring(1, end) : "";
+        return !segment.isEmpty() && segment.chars().allMatch(Character::isDigit) ? segment : "";
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class Key {
+        private final String region;
+        private final String path;
+        private final Long userId;
+
+        String getResource() {
+            return resource(path);
+        }
+
+        boolean isCollection() {
+            return getResource().isEmpty();
+        }
+    }
+}
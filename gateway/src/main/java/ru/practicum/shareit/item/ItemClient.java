@@ -1,43 +1,75 @@
 package ru.practicum.shareit.item;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ResponseCache;
 import ru.practicum.shareit.item.comment.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class ItemClient extends BaseClient {
     private static final String API_PREFIX = "/items";
 
-    public ItemClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public ItemClient(@Value("${shareit-server.url}") String serverUrl, WebClient.Builder builder,
+                      ResponseCache responseCache) {
         super(
                 builder
-                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .baseUrl(serverUrl + API_PREFIX)
+                        .build(),
+                responseCache,
+                API_PREFIX
         );
     }
 
-    public ResponseEntity<Object> createItem(ItemDto itemDto, Long ownerId) {
+    public Mono<ResponseEntity<byte[]>> createItem(ItemDto itemDto, Long ownerId) {
         return post("", ownerId, itemDto);
     }
 
-    public ResponseEntity<Object> createItemComment(Long itemId, CommentDto commentDto, Long userId) {
+    public Mono<ResponseEntity<byte[]>> createItems(List<ItemDto> itemDtos, Long ownerId) {
+        return post("/batch", ownerId, itemDtos);
+    }
+
+    public Mono<ResponseEntity<byte[]>> createItemComment(Long itemId, CommentDto commentDto, Long userId) {
         return post("/" + itemId + "/comment", userId, commentDto);
     }
 
-    public ResponseEntity<Object> getItem(Long itemId, Long userId) {
-        return get("/" + itemId, userId);
+    public Mono<ResponseEntity<byte[]>> getItem(Long itemId, Long userId, String ifNoneMatch) {
+        //Ответ зависит от пользователя: владелец видит бронирования вещи. Последнее и следующее бронирование
+        //меняются со временем и через сервер в обход шлюза, поэтому ответ не кэшируется, а только объединяется
+        return singleFlight("/" + itemId + "|" + userId + "|" + ifNoneMatch,
+                () -> get("/" + itemId, userId, null, ifNoneMatch));
+    }
+
+    public Mono<ResponseEntity<byte[]>> getAvailability(Long itemId, LocalDateTime from, LocalDateTime to,
+                                                        Long userId) {
+        Map<String, Object> parameters = Map.of(
+                "from", from,
+                "to", to
+        );
+        //Занятость зависит от бронирований и текущего времени, поэтому не кэшируется
+        return get("/" + itemId + "/availability?from={from}&to={to}", userId, parameters);
+    }
+
+    public Mono<ResponseEntity<byte[]>> getAvailability(List<Long> itemIds, LocalDateTime from, LocalDateTime to,
+                                                        Long userId) {
+        Map<String, Object> parameters = Map.of(
+                "ids", itemIds.stream().map(String::valueOf).collect(Collectors.joining(",")),
+                "from", from,
+                "to", to
+        );
+        return get("/availability?ids={ids}&from={from}&to={to}", userId, parameters);
     }
 
-    public ResponseEntity<Object> getAllItemsByUserId(Integer from, Integer size, Long userId) {
+    public Mono<ResponseEntity<byte[]>> getAllItemsByUserId(Integer from, Integer size, Long userId) {
         Map<String, Object> parameters = Map.of(
                 "from", from,
                 "size", size
@@ -45,16 +77,18 @@ public class ItemClient extends BaseClient {
         return get("?from={from}&size={size}", userId, parameters);
     }
 
-    public ResponseEntity<Object> update(ItemDto itemDto, Long itemId, Long userId) {
+    public Mono<ResponseEntity<byte[]>> update(ItemDto itemDto, Long itemId, Long userId) {
         return patch("/" + itemId, userId, itemDto);
     }
 
-    public ResponseEntity<Object> searchByText(String text, Integer from, Integer size, Long userId) {
+    public Mono<ResponseEntity<byte[]>> searchByText(String text, Integer from, Integer size, Long userId) {
         Map<String, Object> parameters = Map.of(
                 "text", text,
                 "from", from,
                 "size", size
         );
-        return get("/search?text={text}&from={from}&size={size}", userId, parameters);
+        //Результат поиска не зависит от пользователя, поэтому одинаковые запросы разных пользователей объединяются
+        return singleFlight("/search|" + text + "|" + from + "|" + size,
+                () -> get("/search?text={text}&from={from}&size={size}", userId, parameters));
     }
 }
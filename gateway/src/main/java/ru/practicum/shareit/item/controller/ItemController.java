@@ -2,20 +2,28 @@ package ru.practicum.shareit.item.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.item.ItemClient;
 import ru.practicum.shareit.item.comment.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.validation.ValidationCreate;
 import ru.practicum.shareit.validation.ValidationUpdate;
 
+import javax.validation.Valid;
 import javax.validation.ValidationException;
+import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Controller
 @RequestMapping("/items")
@@ -26,41 +34,80 @@ public class ItemController {
     private final ItemClient itemClient;
 
     private static final String TAG = "GATEWAY ITEM CONTROLLER";
+    private static final int BATCH_MAX_SIZE = 5000;
+    private static final int AVAILABILITY_MAX_ITEMS = 100;
 
     @PostMapping
-    public ResponseEntity<Object> createItem(@RequestBody @Validated(ValidationCreate.class) ItemDto itemDto,
-                                             @RequestHeader(value = "X-Sharer-User-Id") Long userId) {
+    public Mono<ResponseEntity<byte[]>> createItem(@RequestBody @Validated(ValidationCreate.class) ItemDto itemDto,
+                                                   @RequestHeader(value = "X-Sharer-User-Id") Long userId) {
         log.info("{} - Пришел запрос на добавление вещи {}", TAG, itemDto);
         return itemClient.createItem(itemDto, userId);
     }
 
+    //Каждая вещь в пакете проверяется по тем же правилам, что и при создании по одной
+    @PostMapping("/batch")
+    @Validated(ValidationCreate.class)
+    public Mono<ResponseEntity<byte[]>> createItems(@RequestBody
+                                                    @NotEmpty(groups = ValidationCreate.class)
+                                                    @Size(max = BATCH_MAX_SIZE, groups = ValidationCreate.class)
+                                                    List<@Valid @NotNull(groups = ValidationCreate.class) ItemDto> itemDtos,
+                                                    @RequestHeader(value = "X-Sharer-User-Id") Long userId) {
+        log.info("{} - Пришел запрос на добавление {} вещей", TAG, itemDtos.size());
+        return itemClient.createItems(itemDtos, userId);
+    }
+
     @PostMapping("/{itemId}/comment")
-    public ResponseEntity<Object> createItemComment(@PathVariable Long itemId,
-                                                    @RequestBody CommentDto commentDto,
-                                                    @RequestHeader("X-Sharer-User-Id") Long userId) {
+    public Mono<ResponseEntity<byte[]>> createItemComment(@PathVariable Long itemId,
+                                                          @RequestBody CommentDto commentDto,
+                                                          @RequestHeader("X-Sharer-User-Id") Long userId) {
         log.info("{} - Пришел запрос на создание отзывов о вещи по id {}", TAG, itemId);
         return itemClient.createItemComment(itemId, commentDto, userId);
     }
 
     @GetMapping("/{itemId}")
-    public ResponseEntity<Object> getItem(@PathVariable Long itemId,
-                                          @RequestHeader(value = "X-Sharer-User-Id") Long userId) {
+    public Mono<ResponseEntity<byte[]>> getItem(@PathVariable Long itemId,
+                                                @RequestHeader(value = "X-Sharer-User-Id") Long userId,
+                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("{} - Пришел запрос на получение вещи по id {}", TAG, itemId);
-        return itemClient.getItem(itemId, userId);
+        return itemClient.getItem(itemId, userId, ifNoneMatch);
+    }
+
+    @GetMapping("/{itemId}/availability")
+    public Mono<ResponseEntity<byte[]>> getAvailability(@PathVariable Long itemId,
+                                                        @NotNull @RequestParam
+                                                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                        @NotNull @RequestParam
+                                                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                        @RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("{} - Пришел запрос на получение занятости вещи по id {}", TAG, itemId);
+        return itemClient.getAvailability(itemId, from, to, userId);
+    }
+
+    //Календарь для нескольких вещей одним запросом вместо отдельного запроса на каждую
+    @GetMapping("/availability")
+    public Mono<ResponseEntity<byte[]>> getAvailability(@NotEmpty @Size(max = AVAILABILITY_MAX_ITEMS) @RequestParam
+                                                        List<@NotNull @Positive Long> ids,
+                                                        @NotNull @RequestParam
+                                                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                        @NotNull @RequestParam
+                                                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                        @RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("{} - Пришел запрос на получение занятости {} вещей", TAG, ids.size());
+        return itemClient.getAvailability(ids, from, to, userId);
     }
 
     @GetMapping()
-    public ResponseEntity<Object> getAllItemsByUserId(@PositiveOrZero @RequestParam(defaultValue = "0") int from,
-                                                      @Positive @RequestParam(defaultValue = "10") int size,
-                                                      @RequestHeader("X-Sharer-User-Id") Long userId) {
+    public Mono<ResponseEntity<byte[]>> getAllItemsByUserId(@PositiveOrZero @RequestParam(defaultValue = "0") int from,
+                                                            @Positive @RequestParam(defaultValue = "10") int size,
+                                                            @RequestHeader("X-Sharer-User-Id") Long userId) {
         log.info("{} - Пришел запрос на получение всех вещей", TAG);
         return itemClient.getAllItemsByUserId(from, size, userId);
     }
 
     @PatchMapping("{itemId}")
-    public ResponseEntity<Object> update(@RequestBody ItemDto itemDto,
-                                         @PathVariable Long itemId, @Validated(ValidationUpdate.class)
-                                         @RequestHeader(value = "X-Sharer-User-Id") Long userId) {
+    public Mono<ResponseEntity<byte[]>> update(@RequestBody ItemDto itemDto,
+                                               @PathVariable Long itemId, @Validated(ValidationUpdate.class)
+                                               @RequestHeader(value = "X-Sharer-User-Id") Long userId) {
         log.info("{} - Пришел запрос на обновление вещи {}", TAG, itemDto);
         if (itemDto.getName() == null && itemDto.getDescription() == null && itemDto.getAvailable() == null) {
             throw new ValidationException("Некорректные данные");
@@ -69,10 +116,10 @@ public class ItemController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<Object> searchByText(@NotNull @RequestParam(value = "text") String text,
-                                               @PositiveOrZero @RequestParam(defaultValue = "0") int from,
-                                               @Positive @RequestParam(defaultValue = "10") int size,
-                                               @RequestHeader("X-Sharer-User-Id") Long userId) {
+    public Mono<ResponseEntity<byte[]>> searchByText(@NotNull @RequestParam(value = "text") String text,
+                                                     @PositiveOrZero @RequestParam(defaultValue = "0") int from,
+                                                     @Positive @RequestParam(defaultValue = "10") int size,
+                                                     @RequestHeader("X-Sharer-User-Id") Long userId) {
         log.info("{} - Пришел запрос на поиск вещей по названию {}", TAG, text);
         return itemClient.searchByText(text, from, size, userId);
     }
@@ -2,9 +2,11 @@ package ru.practicum.shareit.request.controller;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.request.ItemRequestClient;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.validation.ValidationCreate;
@@ -24,32 +26,33 @@ public class ItemRequestController {
     private final ItemRequestClient itemRequestClient;
 
     @PostMapping
-    public ResponseEntity<Object> createItemRequest(@RequestBody @Validated(ValidationCreate.class) ItemRequestDto itemRequestDto,
-                                                    @RequestHeader(value = "X-Sharer-User-Id") Long userId) {
+    public Mono<ResponseEntity<byte[]>> createItemRequest(@RequestBody @Validated(ValidationCreate.class) ItemRequestDto itemRequestDto,
+                                                          @RequestHeader(value = "X-Sharer-User-Id") Long userId) {
         log.info("{} -  Пришел запрос на создание потребности {} от пользователя {}", TAG, itemRequestDto, userId);
         return itemRequestClient.createItemRequest(itemRequestDto, userId);
     }
 
     @GetMapping
-    public ResponseEntity<Object> getItemRequestsUserSorted(@PositiveOrZero @RequestParam(defaultValue = "0") int from,
-                                                            @Positive @RequestParam(defaultValue = "10") int size,
-                                                            @NotNull @RequestHeader("X-Sharer-User-Id") Long userId) {
+    public Mono<ResponseEntity<byte[]>> getItemRequestsUserSorted(@PositiveOrZero @RequestParam(defaultValue = "0") int from,
+                                                                  @Positive @RequestParam(defaultValue = "10") int size,
+                                                                  @NotNull @RequestHeader("X-Sharer-User-Id") Long userId) {
         log.info("{} - Пришел запрос на получение списка всех потребностей пользователя {}", TAG, userId);
         return itemRequestClient.getItemRequestsUserSorted(from, size, userId);
     }
 
     @GetMapping("/all")
-    public ResponseEntity<Object> getAllItemRequestsSorted(@PositiveOrZero @RequestParam(defaultValue = "0") int from,
-                                                           @Positive @RequestParam(defaultValue = "10") int size,
-                                                           @NotNull @RequestHeader("X-Sharer-User-Id") Long userId) {
+    public Mono<ResponseEntity<byte[]>> getAllItemRequestsSorted(@PositiveOrZero @RequestParam(defaultValue = "0") int from,
+                                                                 @Positive @RequestParam(defaultValue = "10") int size,
+                                                                 @NotNull @RequestHeader("X-Sharer-User-Id") Long userId) {
         log.info("{} - Пришел запрос пользователя {} на получение списка всех потребностей остальных пользователей", TAG, userId);
         return itemRequestClient.getAllItemRequestsSorted(from, size, userId);
     }
 
     @GetMapping("{requestId}")
-    public ResponseEntity<Object> getItemRequest(@NotNull @PathVariable Long requestId,
-                                                 @NotNull @RequestHeader("X-Sharer-User-Id") Long userId) {
+    public Mono<ResponseEntity<byte[]>> getItemRequest(@NotNull @PathVariable Long requestId,
+                                                       @NotNull @RequestHeader("X-Sharer-User-Id") Long userId,
+                                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("{} -  Пришел запрос на получение пользователем {} потребности по id {}", TAG, userId, requestId);
-        return itemRequestClient.getItemRequest(requestId, userId);
+        return itemRequestClient.getItemRequest(requestId, userId, ifNoneMatch);
     }
 }
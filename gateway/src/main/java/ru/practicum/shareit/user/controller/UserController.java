@@ -7,6 +7,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.user.UserClient;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.validation.ValidationCreate;
@@ -26,31 +27,31 @@ public class UserController {
     private final UserClient userClient;
 
     @PostMapping
-    public ResponseEntity<Object> createUser(@RequestBody @Validated(ValidationCreate.class) UserDto userDto) {
+    public Mono<ResponseEntity<byte[]>> createUser(@RequestBody @Validated(ValidationCreate.class) UserDto userDto) {
         log.info("{} -  Пришел запрос на создание пользователя {}", TAG, userDto);
         return userClient.createUser(userDto);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Object> getUser(@NotNull @PathVariable Long id) {
+    public Mono<ResponseEntity<byte[]>> getUser(@NotNull @PathVariable Long id) {
         log.info("{} -  Пришел запрос на получение пользователя по id {}", TAG, id);
         return userClient.getUser(id);
     }
 
     @GetMapping
-    public ResponseEntity<Object> getAllUsers() {
+    public Mono<ResponseEntity<byte[]>> getAllUsers() {
         log.info("{} - Пришел запрос на получение списка всех пользователей", TAG);
         return userClient.getAllUsers();
     }
 
     @PatchMapping("/{id}")
-    public ResponseEntity<Object> updateUser(@Validated({ValidationUpdate.class}) @RequestBody UserDto userDto,
-                                                  @PathVariable Long id) {
+    public Mono<ResponseEntity<byte[]>> updateUser(@Validated({ValidationUpdate.class}) @RequestBody UserDto userDto,
+                                                        @PathVariable Long id) {
         return userClient.updateUser(userDto, id);
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Object> deleteUser(@NumberFormat @PathVariable Long id) {
+    public Mono<ResponseEntity<byte[]>> deleteUser(@NumberFormat @PathVariable Long id) {
         return userClient.deleteUser(id);
     }
 }
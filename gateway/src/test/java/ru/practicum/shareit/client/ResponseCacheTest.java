@@ -0,0 +1,131 @@
+package ru.practicum.shareit.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ResponseCacheTest {
+
+    private static final Long USER_ID = 1L;
+
+    private ResponseCache responseCache;
+
+    @BeforeEach
+    void setUp() {
+        responseCache = new ResponseCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void invalidateTestResourcePathEvictsResourceAndCollections() {
+        cache("/items", "/1");
+        cache("/items", "/2");
+        cache("/items", "?from=0&size=10");
+        cache("/items", "/search?text=drill");
+
+        responseCache.invalidate("/items", "/1");
+
+        assertNull(responseCache.get("/items", "/1", USER_ID));
+        assertNotNull(responseCache.get("/items", "/2", USER_ID));
+        assertNull(responseCache.get("/items", "?from=0&size=10", USER_ID));
+        assertNull(responseCache.get("/items", "/search?text=drill", USER_ID));
+    }
+
+    @Test
+    void invalidateTestCollectionPathKeepsResources() {
+        cache("/items", "/1");
+        cache("/items", "?from=0&size=10");
+
+        responseCache.invalidate("/items", "");
+
+        assertNotNull(responseCache.get("/items", "/1", USER_ID));
+        assertNull(responseCache.get("/items", "?from=0&size=10", USER_ID));
+    }
+
+    @Test
+    void invalidateTestUsersEvictsItemsAndRequests() {
+        cache("/users", "/2");
+        cache("/items", "/1");
+        cache("/requests", "/1");
+        cache("/bookings", "/1");
+
+        responseCache.invalidate("/users", "/1");
+
+        assertNotNull(responseCache.get("/users", "/2", USER_ID));
+        assertNull(responseCache.get("/items", "/1", USER_ID));
+        assertNull(responseCache.get("/requests", "/1", USER_ID));
+        assertNotNull(responseCache.get("/bookings", "/1", USER_ID));
+    }
+
+    @Test
+    void invalidateTestBookingsEvictsItems() {
+        cache("/items", "/1");
+        cache("/items", "/1/availability");
+        cache("/requests", "/1");
+        cache("/bookings", "/2");
+
+        responseCache.invalidate("/bookings", "/1");
+
+        assertNull(responseCache.get("/items", "/1", USER_ID));
+        assertNull(responseCache.get("/items", "/1/availability", USER_ID));
+        assertNotNull(responseCache.get("/requests", "/1", USER_ID));
+        assertNotNull(responseCache.get("/bookings", "/2", USER_ID));
+    }
+
+    @Test
+    void putTestSkipsResponseFetchedAcrossWrite() {
+        long generation = responseCache.generation("/items");
+
+        responseCache.invalidate("/items", "/1");
+        responseCache.put("/items", "/1", USER_ID, generation, ok());
+
+        assertNull(responseCache.get("/items", "/1", USER_ID));
+    }
+
+    @Test
+    void putTestSkipsResponseFetchedAcrossDependentWrite() {
+        long generation = responseCache.generation("/items");
+
+        responseCache.invalidate("/bookings", "");
+        responseCache.put("/items", "/1", USER_ID, generation, ok());
+
+        assertNull(responseCache.get("/items", "/1", USER_ID));
+    }
+
+    @Test
+    void putTestSkipsNotSuccessfulResponses() {
+        long generation = responseCache.generation("/items");
+
+        responseCache.put("/items", "/1", USER_ID, generation, ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+        responseCache.put("/items", "/2", USER_ID, generation,
+                ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+        responseCache.put("/items", "/3", USER_ID, generation, ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+
+        assertNull(responseCache.get("/items", "/1", USER_ID));
+        assertNull(responseCache.get("/items", "/2", USER_ID));
+        assertNull(responseCache.get("/items", "/3", USER_ID));
+    }
+
+    @Test
+    void getTestKeyIncludesUser() {
+        cache("/items", "/1");
+
+        assertNotNull(responseCache.get("/items", "/1", USER_ID));
+        assertNull(responseCache.get("/items", "/1", 2L));
+    }
+
+    private void cache(String region, String path) {
+        responseCache.put(region, path, USER_ID, responseCache.generation(region), ok());
+    }
+
+    private static ResponseEntity<byte[]> ok() {
+        return ResponseEntity.ok("{}".getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,135 @@
+package ru.practicum.shareit.item;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.shareit.client.ResponseCache;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItemClientTest {
+
+    private static final int USERS = 50;
+
+    private final AtomicInteger upstreamRequests = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private HttpServer server;
+    private ItemClient itemClient;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/items", exchange -> {
+            upstreamRequests.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "[{\"id\":1,\"name\":\"Дрель\"}]".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        ResponseCache responseCache = new ResponseCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+        itemClient = new ItemClient("http://localhost:" + server.getAddress().getPort(), WebClient.builder(),
+                responseCache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    void searchByTextTestCoalescesConcurrentRequests() throws Exception {
+        List<Mono<ResponseEntity<byte[]>>> requests = IntStream.rangeClosed(1, USERS)
+                .mapToObj(userId -> itemClient.searchByText("дрель", 0, 10, (long) userId))
+                .collect(Collectors.toList());
+
+        CompletableFuture<List<ResponseEntity<byte[]>>> responses = Flux.merge(requests).collectList().toFuture();
+        waitForUpstream(1);
+        release.countDown();
+
+        List<ResponseEntity<byte[]>> result = responses.get(5, TimeUnit.SECONDS);
+        assertEquals(USERS, result.size());
+        assertTrue(result.stream().allMatch(response -> response.getStatusCode().is2xxSuccessful()));
+        assertEquals(1, upstreamRequests.get());
+    }
+
+    @Test
+    void searchByTextTestSendsNewRequestAfterCompletion() {
+        release.countDown();
+
+        itemClient.searchByText("дрель", 0, 10, 1L).block(Duration.ofSeconds(5));
+        itemClient.searchByText("дрель", 0, 10, 1L).block(Duration.ofSeconds(5));
+
+        assertEquals(2, upstreamRequests.get());
+    }
+
+    @Test
+    void getItemTestDoesNotCoalesceDifferentUsers() throws Exception {
+        CompletableFuture<List<ResponseEntity<byte[]>>> responses = Flux.merge(
+                        itemClient.getItem(1L, 1L, null),
+                        itemClient.getItem(1L, 1L, null),
+                        itemClient.getItem(1L, 2L, null))
+                .collectList()
+                .toFuture();
+        waitForUpstream(2);
+        release.countDown();
+
+        assertEquals(3, responses.get(5, TimeUnit.SECONDS).size());
+        assertEquals(2, upstreamRequests.get());
+    }
+
+    @Test
+    void getItemTestDoesNotCacheTimeDependentViews() {
+        release.countDown();
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+        itemClient.getItem(1L, 1L, null).block(Duration.ofSeconds(5));
+        itemClient.getItem(1L, 1L, null).block(Duration.ofSeconds(5));
+        itemClient.getAvailability(1L, from, from.plusDays(1), 1L).block(Duration.ofSeconds(5));
+        itemClient.getAvailability(1L, from, from.plusDays(1), 1L).block(Duration.ofSeconds(5));
+        itemClient.getAvailability(List.of(1L, 2L), from, from.plusDays(1), 1L).block(Duration.ofSeconds(5));
+        itemClient.getAvailability(List.of(1L, 2L), from, from.plusDays(1), 1L).block(Duration.ofSeconds(5));
+
+        assertEquals(6, upstreamRequests.get());
+    }
+
+    private void waitForUpstream(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (upstreamRequests.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        //Даем время дойти до сервера лишним запросам, если объединение не сработало
+        Thread.sleep(200);
+    }
+}
@@ -4,12 +4,17 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingCursor;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
 import ru.practicum.shareit.booking.service.BookingService;
 import ru.practicum.shareit.utils.CheckPage;
+import ru.practicum.shareit.utils.ETagGenerator;
 
 import java.util.List;
 
@@ -20,9 +25,11 @@ import java.util.List;
 public class BookingController {
 
     private static final String TAG = "BOOKING CONTROLLER";
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
     private final BookingService bookingService;
     private final CheckPage checkPage;
+    private final ETagGenerator eTagGenerator;
 
     @PostMapping
     public ResponseEntity<BookingDto> save(@RequestBody BookingDto bookingDto,
@@ -39,34 +46,61 @@ public class BookingController {
         return new ResponseEntity<>(bookingService.approvedBooking(userId, bookingId, approved), HttpStatus.OK);
     }
 
+    @PatchMapping("/batch")
+    public ResponseEntity<List<BookingBatchResultDto>> approveBatch(@RequestBody List<Long> bookingIds,
+                                                                    @RequestParam Boolean approved,
+                                                                    @RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("{} - Пришел запрос на изменение статуса бронирований {}", TAG, bookingIds);
+        return new ResponseEntity<>(bookingService.approvedBookings(userId, bookingIds, approved), HttpStatus.OK);
+    }
+
     @GetMapping("/{bookingId}")
     public ResponseEntity<BookingDto> getById(@PathVariable Long bookingId,
                                               @RequestHeader("X-Sharer-User-Id") Long userId) {
         log.info("{} - Пришел запрос пользователея с id {} на бронирование {}", TAG, userId, bookingId);
-        return new ResponseEntity<>(bookingService.getById(userId, bookingId), HttpStatus.OK);
+        BookingDto result = bookingService.getById(userId, bookingId);
+        return ResponseEntity.ok().eTag(eTagGenerator.strongETag(result)).body(result);
     }
 
     @GetMapping
-    public ResponseEntity<List<BookingDto>> getAllByUser(@RequestParam(defaultValue = "ALL") String state,
-                                                         @RequestParam(defaultValue = "0") int from,
-                                                         @RequestParam(defaultValue = "10") int size,
-                                                         @RequestHeader("X-Sharer-User-Id") Long userId) {
+    public ResponseEntity<List<BookingShortDto>> getAllByUser(@RequestParam(defaultValue = "ALL") String state,
+                                                              @RequestParam(defaultValue = "0") int from,
+                                                              @RequestParam(defaultValue = "10") int size,
+                                                              @RequestParam(required = false) String after,
+                                                              @RequestHeader("X-Sharer-User-Id") Long userId) {
         log.info("{} - Пришел запрос на получение списка всех бронирований со статусом {} " +
                 "пользователя с id {}", TAG, state, userId);
         checkPage.checkPage(from, size);
+        if (after != null) {
+            return withNextCursor(bookingService.getAllByBookerAfter(userId, state, BookingCursor.decode(after), size),
+                    size);
+        }
         Pageable pageable = PageRequest.of(from / size, size);
         return new ResponseEntity<>(bookingService.getAllByBooker(userId, state, pageable), HttpStatus.OK);
     }
 
     @GetMapping("/owner")
-    public ResponseEntity<List<BookingDto>> getAllForOwner(@RequestParam(defaultValue = "ALL") String state,
-                                                           @RequestParam(defaultValue = "0") int from,
-                                                           @RequestParam(defaultValue = "10") int size,
-                                                           @RequestHeader("X-Sharer-User-Id") Long owner) {
+    public ResponseEntity<List<BookingShortDto>> getAllForOwner(@RequestParam(defaultValue = "ALL") String state,
+                                                                @RequestParam(defaultValue = "0") int from,
+                                                                @RequestParam(defaultValue = "10") int size,
+                                                                @RequestParam(required = false) String after,
+                                                                @RequestHeader("X-Sharer-User-Id") Long owner) {
         log.info("{} - Пришел запрос на получение списка бронирований со статусом {} " +
                 "для вещей пользователя с id {}", TAG, state, owner);
         checkPage.checkPage(from, size);
+        if (after != null) {
+            return withNextCursor(bookingService.getAllByOwnerAfter(owner, state, BookingCursor.decode(after), size),
+                    size);
+        }
         Pageable pageable = PageRequest.of(from / size, size);
         return new ResponseEntity<>(bookingService.getAllByOwner(owner, state, pageable), HttpStatus.OK);
     }
+
+    private ResponseEntity<List<BookingShortDto>> withNextCursor(List<BookingShortDto> bookings, int size) {
+        HttpHeaders headers = new HttpHeaders();
+        if (bookings.size() == size) {
+            headers.set(NEXT_CURSOR_HEADER, BookingCursor.of(bookings.get(size - 1)).encode());
+        }
+        return new ResponseEntity<>(bookings, headers, HttpStatus.OK);
+    }
 }
@@ -0,0 +1,27 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import ru.practicum.shareit.booking.model.StatusBooking;
+
+/**
+ * Результат изменения статуса одного бронирования в пакетном запросе.
+ * Для успешно обработанных бронирований заполнен новый статус, иначе - причина отказа.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class BookingBatchResultDto {
+    private final Long bookingId;
+    private final StatusBooking status;
+    private final String error;
+
+    public static BookingBatchResultDto updated(Long bookingId, StatusBooking status) {
+        return new BookingBatchResultDto(bookingId, status, null);
+    }
+
+    public static BookingBatchResultDto failed(Long bookingId, String error) {
+        return new BookingBatchResultDto(bookingId, null, error);
+    }
+}
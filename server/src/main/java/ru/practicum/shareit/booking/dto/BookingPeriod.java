@@ -0,0 +1,20 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Интервал занятости вещи по одному бронированию.
+ * Заполняется напрямую из запроса, без загрузки сущностей бронирования.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class BookingPeriod {
+    private final Long itemId;
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+}
@@ -0,0 +1,48 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import ru.practicum.shareit.booking.model.StatusBooking;
+
+import java.time.LocalDateTime;
+
+/**
+ * Облегченное представление бронирования для списков.
+ * Заполняется напрямую из запроса, без загрузки сущностей вещи и пользователя.
+ */
+@Getter
+@ToString
+public class BookingShortDto {
+    private final Long id;
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    private final StatusBooking status;
+    private final ItemShort item;
+    private final BookerShort booker;
+
+    public BookingShortDto(Long id, LocalDateTime start, LocalDateTime end, StatusBooking status,
+                           Long itemId, String itemName, Long bookerId) {
+        this.id = id;
+        this.start = start;
+        this.end = end;
+        this.status = status;
+        this.item = new ItemShort(itemId, itemName);
+        this.booker = new BookerShort(bookerId);
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class ItemShort {
+        private final Long id;
+        private final String name;
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class BookerShort {
+        private final Long id;
+    }
+}
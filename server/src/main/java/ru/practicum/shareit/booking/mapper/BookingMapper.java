@@ -4,9 +4,6 @@ import org.springframework.stereotype.Component;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.model.Booking;
 
-import java.util.ArrayList;
-import java.util.List;
-
 @Component
 public class BookingMapper {
 
@@ -33,15 +30,10 @@ public class BookingMapper {
                 bookingDto.getEnd(),
                 bookingDto.getItem(),
                 bookingDto.getBooker(),
-                bookingDto.getStatus()
+                bookingDto.getStatus(),
+                null,
+                0L,
+                null
         );
     }
-
-    public List<BookingDto> toBookingDto(List<Booking> bookings) {
-        List<BookingDto> bookingDto = new ArrayList<>();
-        for (Booking booking : bookings) {
-            bookingDto.add(toBookingDto(booking));
-        }
-        return bookingDto;
-    }
 }
@@ -1,5 +1,6 @@
 package ru.practicum.shareit.booking.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -16,6 +17,13 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Entity
 @Table(name = "bookings")
+@NamedEntityGraph(name = "Booking.list",
+        attributeNodes = {
+                @NamedAttributeNode(value = "item", subgraph = "item"),
+                @NamedAttributeNode("booker")
+        },
+        subgraphs = @NamedSubgraph(name = "item", attributeNodes = @NamedAttributeNode("owner")))
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Booking {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -27,14 +35,35 @@ public class Booking {
     @Column(name = "end_date")
     private LocalDateTime end;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "item_id", referencedColumnName = "id")
     private Item item;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "booker_id", referencedColumnName = "id")
     private User booker;
 
     @Enumerated(EnumType.STRING)
     private StatusBooking status;
+
+    //Владелец вещи, хранится в бронировании для выборок владельца без join на items
+    @Column(name = "owner_id")
+    private Long ownerId;
+
+    //Параллельные изменения статуса обнаруживаются при записи, проигравшая транзакция повторяется
+    @Version
+    @Column(name = "version")
+    private long version;
+
+    //Фаза по времени бронирования для выборок PAST/CURRENT/FUTURE по равенству.
+    //Вычисляется при каждой записи, между записями ее сдвигает BookingPhaseSweeper
+    @Enumerated(EnumType.STRING)
+    @Column(name = "phase")
+    private BookingPhase phase;
+
+    @PrePersist
+    @PreUpdate
+    void updatePhase() {
+        phase = BookingPhase.of(start, end, LocalDateTime.now());
+    }
 }
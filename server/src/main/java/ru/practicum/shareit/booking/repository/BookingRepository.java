@@ -1,66 +1,186 @@
 package ru.practicum.shareit.booking.repository;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.booking.dto.BookingPeriod;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
 import ru.practicum.shareit.booking.model.StatusBooking;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
 
-    //Методы для getAllByBooker
-    List<Booking> findAllByBookerIdOrderByStartDesc(Long bookerId, Pageable pageable);
+    //Облегченная проекция для списков бронирований: только поля, которые возвращаются клиенту
+    String SELECT_SHORT = "select new ru.practicum.shareit.booking.dto.BookingShortDto(" +
+            "b.id, b.start, b.end, b.status, i.id, i.name, b.booker.id) " +
+            "from Booking b join b.item i ";
 
-    List<Booking> findAllByBookerIdAndStatusOrderByStartDesc(Long bookerId, StatusBooking status, Pageable pageable);
+    //Условие и порядок для постраничного вывода по курсору (start, id)
+    String AFTER_CURSOR = "(b.start < :start or (b.start = :start and b.id < :id)) ";
+    String ORDER_BY_CURSOR = "order by b.start desc, b.id desc";
 
-    List<Booking> findAllByBookerIdAndEndBeforeOrderByStartDesc(Long bookerId, LocalDateTime now, Pageable pageable);
+    String PHASE = "ru.practicum.shareit.booking.model.BookingPhase.";
 
-    List<Booking> findAllByBookerIdAndStartAfterOrderByStartDesc(Long bookerId, LocalDateTime now, Pageable pageable);
+    @Override
+    @EntityGraph("Booking.list")
+    Optional<Booking> findById(Long id);
 
-    @Query("select b from Booking b " +
-            "where b.booker.id = ?1 and " +
-            "b.start < ?2 and " +
-            "b.end > ?2 " +
+    //Методы для getAllByBooker
+    @Query(SELECT_SHORT +
+            "where b.booker.id = ?1 " +
             "order by b.start desc")
-    List<Booking> findCurrentBookerBookings(Long bookerId, LocalDateTime now, Pageable pageable);
+    List<BookingShortDto> findAllByBookerIdOrderByStartDesc(Long bookerId, Pageable pageable);
 
-    //Методы для getAllByOwner
-    List<Booking> findAllByItemOwnerIdOrderByStartDesc(Long ownerId, Pageable pageable);
+    @Query(SELECT_SHORT +
+            "where b.booker.id = ?1 and b.status = ?2 " +
+            "order by b.start desc")
+    List<BookingShortDto> findAllByBookerIdAndStatusOrderByStartDesc(Long bookerId, StatusBooking status,
+                                                                     Pageable pageable);
 
-    List<Booking> findAllByItemOwnerIdAndStatusOrderByStartDesc(Long ownerId, StatusBooking status, Pageable pageable);
+    @Query(SELECT_SHORT +
+            "where b.booker.id = ?1 and b.phase = ?2 " +
+            "order by b.start desc")
+    List<BookingShortDto> findAllByBookerIdAndPhaseOrderByStartDesc(Long bookerId, BookingPhase phase,
+                                                                    Pageable pageable);
+
+    //Методы для getAllByBookerAfter
+    @Query(SELECT_SHORT +
+            "where b.booker.id = :userId and " + AFTER_CURSOR + ORDER_BY_CURSOR)
+    List<BookingShortDto> findBookerBookingsAfter(@Param("userId") Long bookerId, @Param("start") LocalDateTime start,
+                                                  @Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_SHORT +
+            "where b.booker.id = :userId and b.status = :status and " + AFTER_CURSOR + ORDER_BY_CURSOR)
+    List<BookingShortDto> findBookerBookingsByStatusAfter(@Param("userId") Long bookerId,
+                                                          @Param("status") StatusBooking status,
+                                                          @Param("start") LocalDateTime start, @Param("id") Long id,
+                                                          Pageable pageable);
+
+    @Query(SELECT_SHORT +
+            "where b.booker.id = :userId and b.phase = :phase and " + AFTER_CURSOR + ORDER_BY_CURSOR)
+    List<BookingShortDto> findBookerBookingsByPhaseAfter(@Param("userId") Long bookerId,
+                                                         @Param("phase") BookingPhase phase,
+                                                         @Param("start") LocalDateTime start, @Param("id") Long id,
+                                                         Pageable pageable);
 
-    List<Booking> findAllByItemOwnerIdAndEndBeforeOrderByStartDesc(Long ownerId, LocalDateTime now, Pageable pageable);
+    //Методы для getAllByOwner
+    @Query(SELECT_SHORT +
+            "where b.ownerId = ?1 " +
+            "order by b.start desc")
+    List<BookingShortDto> findAllByOwnerIdOrderByStartDesc(Long ownerId, Pageable pageable);
 
-    List<Booking> findAllByItemOwnerIdAndStartAfterOrderByStartDesc(Long ownerId, LocalDateTime now, Pageable pageable);
+    @Query(SELECT_SHORT +
+            "where b.ownerId = ?1 and b.status = ?2 " +
+            "order by b.start desc")
+    List<BookingShortDto> findAllByOwnerIdAndStatusOrderByStartDesc(Long ownerId, StatusBooking status,
+                                                                    Pageable pageable);
 
-    @Query("select b from Booking b " +
-            "where b.item.owner.id = ?1 and " +
-            "b.start < ?2 and " +
-            "b.end > ?2 " +
+    @Query(SELECT_SHORT +
+            "where b.ownerId = ?1 and b.phase = ?2 " +
             "order by b.start desc")
-    List<Booking> findCurrentOwnerBookings(Long ownerId, LocalDateTime now, Pageable pageable);
+    List<BookingShortDto> findAllByOwnerIdAndPhaseOrderByStartDesc(Long ownerId, BookingPhase phase,
+                                                                   Pageable pageable);
+
+    //Методы для getAllByOwnerAfter
+    @Query(SELECT_SHORT +
+            "where b.ownerId = :userId and " + AFTER_CURSOR + ORDER_BY_CURSOR)
+    List<BookingShortDto> findOwnerBookingsAfter(@Param("userId") Long ownerId, @Param("start") LocalDateTime start,
+                                                 @Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_SHORT +
+            "where b.ownerId = :userId and b.status = :status and " + AFTER_CURSOR + ORDER_BY_CURSOR)
+    List<BookingShortDto> findOwnerBookingsByStatusAfter(@Param("userId") Long ownerId,
+                                                         @Param("status") StatusBooking status,
+                                                         @Param("start") LocalDateTime start, @Param("id") Long id,
+                                                         Pageable pageable);
+
+    @Query(SELECT_SHORT +
+            "where b.ownerId = :userId and b.phase = :phase and " + AFTER_CURSOR + ORDER_BY_CURSOR)
+    List<BookingShortDto> findOwnerBookingsByPhaseAfter(@Param("userId") Long ownerId,
+                                                        @Param("phase") BookingPhase phase,
+                                                        @Param("start") LocalDateTime start, @Param("id") Long id,
+                                                        Pageable pageable);
 
     //Методы для createComment
     Long countAllByItemIdAndBookerIdAndEndBefore(Long itemId, Long userId, LocalDateTime now);
 
-    //Методы для getItem
-    @Query("select b from Booking b " +
-            "where b.item.id = ?1 and " +
-            "b.item.owner.id = ?2 and " +
-            "b.start < ?3 and b.status != 'REJECTED' " +
-            "order by b.end desc")
-    List<Booking> findPastOwnerBookings(Long itemId, Long ownerId, LocalDateTime now);
-
-    @Query("select b from Booking b " +
-            "where b.item.id = ?1 and " +
-            "b.item.owner.id = ?2 and " +
-            "b.start > ?3 and b.status != 'REJECTED' " +
-            "order by b.start asc")
-    List<Booking> findFutureOwnerBookings(Long itemId, Long ownerId, LocalDateTime now);
-
-    //Метод для getItems
-    List<Booking> findByItemIdInAndStatusNot(List<Long> itemIds, StatusBooking status);
+    //Методы для getItem: только одна ближайшая бронь (limit 1)
+    @EntityGraph("Booking.list")
+    Optional<Booking> findFirstByItemIdAndOwnerIdAndStartBeforeAndStatusNotInOrderByEndDesc(
+            Long itemId, Long ownerId, LocalDateTime now, Collection<StatusBooking> statuses);
+
+    @EntityGraph("Booking.list")
+    Optional<Booking> findFirstByItemIdAndOwnerIdAndStartAfterAndStatusNotInOrderByStartAsc(
+            Long itemId, Long ownerId, LocalDateTime now, Collection<StatusBooking> statuses);
+
+    //Метод для getItems. Условие по b.item.id задано явно: в производном запросе с графом сущностей
+    //Hibernate фильтрует по присоединенной таблице items, и bookings читается целиком
+    @EntityGraph("Booking.list")
+    @Query("select b from Booking b where b.item.id in ?1 and b.status not in ?2")
+    List<Booking> findByItemIdInAndStatusNotIn(List<Long> itemIds, Collection<StatusBooking> statuses);
+
+    //Методы для проверки пересечения интервалов [start, end) бронирований одной вещи.
+    //Условие end > start отсекает завершенные бронирования по индексу (item_id, end_date).
+    //Статусы передаются те же, что в ограничении ex_bookings_item_period на PostgreSQL
+    @Query("select case when count(b) > 0 then true else false end from Booking b " +
+            "where b.item.id = ?1 and b.end > ?2 and b.start < ?3 and b.status in ?4")
+    boolean existsOverlapping(Long itemId, LocalDateTime start, LocalDateTime end,
+                              Collection<StatusBooking> statuses);
+
+    @Query("select case when count(b) > 0 then true else false end from Booking b " +
+            "where b.item.id = ?1 and b.id <> ?2 and b.end > ?3 and b.start < ?4 and b.status in ?5")
+    boolean existsOverlappingExcept(Long itemId, Long bookingId, LocalDateTime start, LocalDateTime end,
+                                    Collection<StatusBooking> statuses);
+
+    @Query("select b.id from Booking b " +
+            "where b.id in ?1 and exists (select o.id from Booking o " +
+            "where o.item = b.item and o.id <> b.id and o.status in ?2 and o.end > b.start and o.start < b.end)")
+    List<Long> findOverlappingIds(Collection<Long> bookingIds, Collection<StatusBooking> statuses);
+
+    //Метод для getAvailability: интервалы бронирований вещей, пересекающие [from, to), по индексу (item_id, end_date)
+    @Query("select new ru.practicum.shareit.booking.dto.BookingPeriod(b.item.id, b.start, b.end) from Booking b " +
+            "where b.item.id in ?1 and b.end > ?2 and b.start < ?3 and b.status in ?4 " +
+            "order by b.item.id, b.start")
+    List<BookingPeriod> findPeriods(Collection<Long> itemIds, LocalDateTime from, LocalDateTime to,
+                                    Collection<StatusBooking> statuses);
+
+    //Методы для BookingPhaseSweeper: фаза только сдвигается вперед по индексу (phase, start_date).
+    //Версия не увеличивается: параллельная запись бронирования сама пересчитает фазу
+    @Modifying
+    @Query("update Booking b set b.phase = " + PHASE + "PAST " +
+            "where b.phase in (" + PHASE + "FUTURE, " + PHASE + "CURRENT) and b.start <= ?1 and b.end <= ?1")
+    int markPast(LocalDateTime now);
+
+    @Modifying
+    @Query("update Booking b set b.phase = " + PHASE + "CURRENT " +
+            "where b.phase = " + PHASE + "FUTURE and b.start <= ?1 and b.end > ?1")
+    int markCurrent(LocalDateTime now);
+
+    //Метод для BookingExpirySweeper: захват пакета просроченных бронирований под блокировку строк.
+    //Таймаут -2 (SKIP_LOCKED) на PostgreSQL дает FOR UPDATE SKIP LOCKED: строки, захваченные другим узлом, пропускаются
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select b from Booking b where b.status = ?1 and b.start <= ?2 order by b.start")
+    List<Booking> claimStarted(StatusBooking status, LocalDateTime now, Pageable pageable);
+
+    //Метод для approvedBookings: один UPDATE на весь пакет, условие повторяет проверки сервиса.
+    //Контекст не очищается: иначе Hibernate не увеличит версии вещей, заблокированных в этой транзакции
+    @Modifying(flushAutomatically = true)
+    @Query("update Booking b set b.status = ?3, b.version = b.version + 1 " +
+            "where b.id in ?1 and b.ownerId = ?2 and b.status not in ?4")
+    int updateStatusByOwner(Collection<Long> bookingIds, Long ownerId, StatusBooking status,
+                            Collection<StatusBooking> finalStatuses);
 }
@@ -0,0 +1,77 @@
+package ru.practicum.shareit.booking.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static ru.practicum.shareit.booking.model.StatusBooking.CANCELED;
+import static ru.practicum.shareit.booking.model.StatusBooking.WAITING;
+
+/**
+ * Отмена бронирований, которые так и не были подтверждены до начала аренды: WAITING -> CANCELED.
+ * Каждый пакет обрабатывается в своей транзакции, строки захватываются с пропуском заблокированных,
+ * поэтому несколько узлов сервера разбирают разные пакеты и не ждут друг друга.
+ */
+@Slf4j
+@Component
+public class BookingExpirySweeper {
+
+    private static final String TAG = "BOOKING EXPIRY SWEEPER";
+
+    private final BookingRepository bookingRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final DistributionSummary batchSizes;
+    private final Timer lag;
+
+    public BookingExpirySweeper(BookingRepository bookingRepository,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${shareit.booking-expiry.batch-size:100}") int batchSize) {
+        this.bookingRepository = bookingRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.batchSizes = meterRegistry.summary("shareit.booking.expiry.batch.size");
+        this.lag = meterRegistry.timer("shareit.booking.expiry.lag");
+    }
+
+    //Пакеты разбираются, пока очередной не окажется неполным
+    @Scheduled(fixedDelayString = "${shareit.booking-expiry.interval:PT1M}")
+    public int sweep() {
+        int total = 0;
+        int expired;
+        do {
+            expired = transactionTemplate.execute(status -> expireBatch(LocalDateTime.now()));
+            total += expired;
+        } while (expired == batchSize);
+        if (total > 0) {
+            log.info("{} - Отменено неподтвержденных бронирований: {}", TAG, total);
+        }
+        return total;
+    }
+
+    //Статус меняется через сущность: версия увеличивается, и параллельное подтверждение владельцем
+    //повторится через OptimisticRetry и увидит отмену
+    private int expireBatch(LocalDateTime now) {
+        List<Booking> bookings = bookingRepository.claimStarted(WAITING, now, PageRequest.of(0, batchSize));
+        for (Booking booking : bookings) {
+            booking.setStatus(CANCELED);
+            lag.record(Duration.between(booking.getStart(), now));
+        }
+        batchSizes.record(bookings.size());
+        return bookings.size();
+    }
+}
@@ -0,0 +1,35 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Периодический перевод бронирований в следующую фазу: FUTURE -> CURRENT -> PAST.
+ * Между запусками фаза может отставать от времени не больше чем на интервал обхода.
+ */
+@Slf4j
+@Component
+@AllArgsConstructor
+public class BookingPhaseSweeper {
+
+    private static final String TAG = "BOOKING PHASE SWEEPER";
+
+    private final BookingRepository bookingRepository;
+
+    @Scheduled(fixedDelayString = "${shareit.booking-phase.sweep-interval:PT1M}")
+    @Transactional
+    public void sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        int past = bookingRepository.markPast(now);
+        int current = bookingRepository.markCurrent(now);
+        if (past > 0 || current > 0) {
+            log.info("{} - Завершено бронирований: {}, начато: {}", TAG, past, current);
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package ru.practicum.shareit.booking.service;
 
 import org.springframework.data.domain.Pageable;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingCursor;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
 
 import java.util.List;
 
@@ -11,9 +14,15 @@ public interface BookingService {
 
     BookingDto approvedBooking(Long userId, Long bookingId, Boolean approved);
 
+    List<BookingBatchResultDto> approvedBookings(Long userId, List<Long> bookingIds, Boolean approved);
+
     BookingDto getById(Long userId, Long bookingId);
 
-    List<BookingDto> getAllByBooker(Long userId, String state, Pageable pageable);
+    List<BookingShortDto> getAllByBooker(Long userId, String state, Pageable pageable);
+
+    List<BookingShortDto> getAllByOwner(Long userId, String state, Pageable pageable);
+
+    List<BookingShortDto> getAllByBookerAfter(Long userId, String state, BookingCursor after, int size);
 
-    List<BookingDto> getAllByOwner(Long userId, String state, Pageable pageable);
+    List<BookingShortDto> getAllByOwnerAfter(Long userId, String state, BookingCursor after, int size);
 }
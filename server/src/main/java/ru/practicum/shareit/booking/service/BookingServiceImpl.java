@@ -2,26 +2,40 @@ package ru.practicum.shareit.booking.service;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingCursor;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
 import ru.practicum.shareit.booking.model.StatusBooking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.exception.ConflictException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.utils.CheckExistence;
+import ru.practicum.shareit.utils.OptimisticRetry;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static ru.practicum.shareit.booking.model.StatusBooking.*;
 
@@ -31,15 +45,36 @@ import static ru.practicum.shareit.booking.model.StatusBooking.*;
 public class BookingServiceImpl implements BookingService {
 
     private static final String TAG = "BOOKING SERVICE";
+    //Статусы, из которых владелец уже не может перевести бронирование
+    private static final List<StatusBooking> FINAL_STATUSES = List.of(APPROVED, CANCELED);
+    //Бронирования, которые занимают вещь: те же статусы, что в ограничении ex_bookings_item_period
+    private static final List<StatusBooking> BLOCKING_STATUSES = List.of(WAITING, APPROVED);
     private final BookingRepository bookingRepository;
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
     private final BookingMapper bookingMapper;
+    private final CheckExistence checkExistence;
+    private final OptimisticRetry optimisticRetry;
 
     @Override
-    @Transactional
     public BookingDto createBooking(BookingDto bookingDto, Long userId) {
         log.info("{} - Обработка запроса на добавление бронирования", TAG);
+        return optimisticRetry.inTransaction(() -> saveBooking(bookingDto, userId));
+    }
+
+    @Override
+    public BookingDto approvedBooking(Long userId, Long bookingId, Boolean approved) {
+        log.info("{} - Обработка запроса на изменение статуса бронирования", TAG);
+        return optimisticRetry.inTransaction(() -> changeStatus(userId, bookingId, approved));
+    }
+
+    @Override
+    public List<BookingBatchResultDto> approvedBookings(Long userId, List<Long> bookingIds, Boolean approved) {
+        log.info("{} - Обработка запроса на изменение статуса {} бронирований", TAG, bookingIds.size());
+        return optimisticRetry.inTransaction(() -> changeStatuses(userId, bookingIds, approved));
+    }
+
+    private BookingDto saveBooking(BookingDto bookingDto, Long userId) {
         Item item = checkItem(bookingDto.getItemId());
         User booker = checkUser(userId);
         if (item.getOwner().getId().equals(userId)) {
@@ -55,17 +90,20 @@ public class BookingServiceImpl implements BookingService {
         Booking booking = bookingMapper.toBooking(bookingDto);
         booking.setItem(item);
         booking.setBooker(booker);
+        booking.setOwnerId(item.getOwner().getId());
         if (!booking.getItem().getAvailable()) {
             throw new ValidationException("Вещь недоступна для бронирования");
         }
+        itemRepository.lockForBooking(item);
+        if (bookingRepository.existsOverlapping(item.getId(), booking.getStart(), booking.getEnd(),
+                BLOCKING_STATUSES)) {
+            throw new ConflictException("Вещь уже забронирована на это время");
+        }
         return bookingMapper.toBookingDto(bookingRepository.save(booking));
     }
 
-    @Override
-    @Transactional
-    public BookingDto approvedBooking(Long userId, Long bookingId, Boolean approved) {
-        log.info("{} - Обработка запроса на изменение статуса бронирования", TAG);
-        checkUser(userId);
+    private BookingDto changeStatus(Long userId, Long bookingId, Boolean approved) {
+        checkExistence.checkUser(userId);
         Booking booking = checkBooking(bookingId);
         if (!booking.getItem().getOwner().getId().equals(userId)) {
             throw new NotFoundException("Вы не являетесь владельцем вещи");
@@ -73,18 +111,61 @@ public class BookingServiceImpl implements BookingService {
         if (booking.getStatus() == APPROVED) {
             throw new ValidationException("Бронирование уже подтверждено");
         }
+        if (booking.getStatus() == CANCELED) {
+            throw new ValidationException("Бронирование отменено");
+        }
+        if (approved) {
+            itemRepository.lockForBooking(booking.getItem());
+            if (bookingRepository.existsOverlappingExcept(booking.getItem().getId(), bookingId,
+                    booking.getStart(), booking.getEnd(), BLOCKING_STATUSES)) {
+                throw new ConflictException("Время бронирования пересекается с другим бронированием");
+            }
+        }
         booking.setStatus(approved ? APPROVED : REJECTED);
         return bookingMapper.toBookingDto(bookingRepository.save(booking));
     }
 
+    private List<BookingBatchResultDto> changeStatuses(Long userId, List<Long> bookingIds, Boolean approved) {
+        checkExistence.checkUser(userId);
+        StatusBooking status = approved ? APPROVED : REJECTED;
+        Map<Long, Booking> bookings = bookingRepository.findAllById(bookingIds).stream()
+                .collect(Collectors.toMap(Booking::getId, Function.identity()));
+
+        List<BookingBatchResultDto> results = new ArrayList<>();
+        Set<Long> toUpdate = new LinkedHashSet<>();
+        for (Long bookingId : new LinkedHashSet<>(bookingIds)) {
+            Booking booking = bookings.get(bookingId);
+            if (booking == null) {
+                results.add(BookingBatchResultDto.failed(bookingId, "Бронирование не найдено"));
+            } else if (!userId.equals(booking.getOwnerId())) {
+                results.add(BookingBatchResultDto.failed(bookingId, "Вы не являетесь владельцем вещи"));
+            } else if (booking.getStatus() == APPROVED) {
+                results.add(BookingBatchResultDto.failed(bookingId, "Бронирование уже подтверждено"));
+            } else if (booking.getStatus() == CANCELED) {
+                results.add(BookingBatchResultDto.failed(bookingId, "Бронирование отменено"));
+            } else {
+                toUpdate.add(bookingId);
+                results.add(BookingBatchResultDto.updated(bookingId, status));
+            }
+        }
+        if (approved && !toUpdate.isEmpty()) {
+            removeOverlapping(toUpdate, bookings, results);
+        }
+        //Бронирование могло измениться после чтения: тогда пакет повторяется через OptimisticRetry на свежих данных
+        if (!toUpdate.isEmpty()
+                && bookingRepository.updateStatusByOwner(toUpdate, userId, status, FINAL_STATUSES) != toUpdate.size()) {
+            throw new ConcurrencyFailureException("Статус части бронирований изменен параллельным запросом");
+        }
+        return results;
+    }
+
     @Override
     public BookingDto getById(Long userId, Long bookingId) {
         log.info("{} - Обработка запроса пользователея с id {} на бронирование {}", TAG, userId, bookingId);
-        checkUser(userId);
+        checkExistence.checkUser(userId);
         Booking booking = checkBooking(bookingId);
-        Item item = checkItem(booking.getItem().getId());
         if (!booking.getBooker().getId().equals(userId)) {
-            if (!item.getOwner().getId().equals(userId)) {
+            if (!booking.getItem().getOwner().getId().equals(userId)) {
                 throw new NotFoundException("Вы не бронировали эту вещь");
             }
         }
@@ -92,67 +173,110 @@ public class BookingServiceImpl implements BookingService {
     }
 
     @Override
-    public List<BookingDto> getAllByBooker(Long userId, String state, Pageable pageable) {
+    public List<BookingShortDto> getAllByBooker(Long userId, String state, Pageable pageable) {
         log.info("{} - Обработка запроса на получение списка всех бронирований со статусом {} " +
                 "пользователя с id {}", TAG, state, userId);
-        checkUser(userId);
+        checkExistence.checkUser(userId);
         Pageable page = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("start").descending());
-        List<Booking> bookings = new ArrayList<>();
         switch (state.toUpperCase()) {
             case "ALL":
-                bookings = bookingRepository.findAllByBookerIdOrderByStartDesc(userId, page);
-                return bookingMapper.toBookingDto(bookings);
+                return bookingRepository.findAllByBookerIdOrderByStartDesc(userId, page);
             case "WAITING":
             case "APPROVED":
             case "REJECTED":
             case "CANCELED":
                 StatusBooking status = checkStatus(state);
-                bookings = bookingRepository.findAllByBookerIdAndStatusOrderByStartDesc(userId, status, page);
-                return bookingMapper.toBookingDto(bookings);
+                return bookingRepository.findAllByBookerIdAndStatusOrderByStartDesc(userId, status, page);
             case "PAST":
-                bookings = bookingRepository.findAllByBookerIdAndEndBeforeOrderByStartDesc(userId, LocalDateTime.now(), page);
-                return bookingMapper.toBookingDto(bookings);
             case "FUTURE":
-                bookings = bookingRepository.findAllByBookerIdAndStartAfterOrderByStartDesc(userId, LocalDateTime.now(), page);
-                return bookingMapper.toBookingDto(bookings);
             case "CURRENT":
-                bookings = bookingRepository.findCurrentBookerBookings(userId, LocalDateTime.now(), page);
-                return bookingMapper.toBookingDto(bookings);
+                BookingPhase phase = BookingPhase.valueOf(state.toUpperCase());
+                return bookingRepository.findAllByBookerIdAndPhaseOrderByStartDesc(userId, phase, page);
             default:
                 throw new ValidationException("Unknown state: UNSUPPORTED_STATUS");
         }
     }
 
     @Override
-    public List<BookingDto> getAllByOwner(Long userId, String state, Pageable pageable) {
+    public List<BookingShortDto> getAllByOwner(Long userId, String state, Pageable pageable) {
         log.info("{} - Обработка запроса на получение списка бронирований со статусом {} " +
                 "для вещей пользователя с id {}", TAG, state, userId);
-        checkUser(userId);
+        checkExistence.checkUser(userId);
         Pageable page = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("start").descending());
         if (itemRepository.findAllByOwnerIdOrderByIdAsc(userId).isEmpty()) {
             throw new ValidationException("У пользователя с id " + userId + " нет вещей");
         }
-        List<Booking> bookings;
         switch (state) {
             case "ALL":
-                bookings = bookingRepository.findAllByItemOwnerIdOrderByStartDesc(userId, page);
-                return bookingMapper.toBookingDto(bookings);
+                return bookingRepository.findAllByOwnerIdOrderByStartDesc(userId, page);
             case "WAITING":
             case "APPROVED":
             case "REJECTED":
             case "CANCELED":
                 StatusBooking status = checkStatus(state);
-                bookings = bookingRepository.findAllByItemOwnerIdAndStatusOrderByStartDesc(userId, status, page);
-                return bookingMapper.toBookingDto(bookings);
+                return bookingRepository.findAllByOwnerIdAndStatusOrderByStartDesc(userId, status, page);
             case "PAST":
-                bookings = bookingRepository.findAllByItemOwnerIdAndEndBeforeOrderByStartDesc(userId, LocalDateTime.now(), page);
-                return bookingMapper.toBookingDto(bookings);
             case "FUTURE":
-                bookings = bookingRepository.findAllByItemOwnerIdAndStartAfterOrderByStartDesc(userId, LocalDateTime.now(), page);
-                return bookingMapper.toBookingDto(bookings);
             case "CURRENT":
-                bookings = bookingRepository.findCurrentOwnerBookings(userId, LocalDateTime.now(), page);
-                return bookingMapper.toBookingDto(bookings);
+                BookingPhase phase = BookingPhase.valueOf(state);
+                return bookingRepository.findAllByOwnerIdAndPhaseOrderByStartDesc(userId, phase, page);
+            default:
+                throw new ValidationException("Unknown state: UNSUPPORTED_STATUS");
+        }
+    }
+
+    @Override
+    public List<BookingShortDto> getAllByBookerAfter(Long userId, String state, BookingCursor after, int size) {
+        log.info("{} - Обработка запроса на получение списка бронирований со статусом {} " +
+                "пользователя с id {} после {}", TAG, state, userId, after);
+        checkExistence.checkUser(userId);
+        Pageable page = PageRequest.of(0, size);
+        LocalDateTime start = after.getStart();
+        Long id = after.getId();
+        switch (state.toUpperCase()) {
+            case "ALL":
+                return bookingRepository.findBookerBookingsAfter(userId, start, id, page);
+            case "WAITING":
+            case "APPROVED":
+            case "REJECTED":
+            case "CANCELED":
+                StatusBooking status = checkStatus(state.toUpperCase());
+                return bookingRepository.findBookerBookingsByStatusAfter(userId, status, start, id, page);
+            case "PAST":
+            case "FUTURE":
+            case "CURRENT":
+                BookingPhase phase = BookingPhase.valueOf(state.toUpperCase());
+                return bookingRepository.findBookerBookingsByPhaseAfter(userId, phase, start, id, page);
+            default:
+                throw new ValidationException("Unknown state: UNSUPPORTED_STATUS");
+        }
+    }
+
+    @Override
+    public List<BookingShortDto> getAllByOwnerAfter(Long userId, String state, BookingCursor after, int size) {
+        log.info("{} - Обработка запроса на получение списка бронирований со статусом {} " +
+                "для вещей пользователя с id {} после {}", TAG, state, userId, after);
+        checkExistence.checkUser(userId);
+        if (itemRepository.findAllByOwnerIdOrderByIdAsc(userId).isEmpty()) {
+            throw new ValidationException("У пользователя с id " + userId + " нет вещей");
+        }
+        Pageable page = PageRequest.of(0, size);
+        LocalDateTime start = after.getStart();
+        Long id = after.getId();
+        switch (state.toUpperCase()) {
+            case "ALL":
+                return bookingRepository.findOwnerBookingsAfter(userId, start, id, page);
+            case "WAITING":
+            case "APPROVED":
+            case "REJECTED":
+            case "CANCELED":
+                StatusBooking status = checkStatus(state.toUpperCase());
+                return bookingRepository.findOwnerBookingsByStatusAfter(userId, status, start, id, page);
+            case "PAST":
+            case "FUTURE":
+            case "CURRENT":
+                BookingPhase phase = BookingPhase.valueOf(state.toUpperCase());
+                return bookingRepository.findOwnerBookingsByPhaseAfter(userId, phase, start, id, page);
             default:
                 throw new ValidationException("Unknown state: UNSUPPORTED_STATUS");
         }
@@ -168,6 +292,42 @@ public class BookingServiceImpl implements BookingService {
                 .orElseThrow(() -> new NotFoundException("Вещь не найдена"));
     }
 
+    //Из пакета на подтверждение убираются бронирования, пересекающиеся с уже подтвержденными
+    //или друг с другом; для них в результатах указывается причина отказа
+    private void removeOverlapping(Set<Long> toUpdate, Map<Long, Booking> bookings,
+                                   List<BookingBatchResultDto> results) {
+        Set<Long> itemIds = toUpdate.stream()
+                .map(id -> bookings.get(id).getItem().getId())
+                .collect(Collectors.toSet());
+        //Вещи блокируются в порядке id, чтобы параллельные пакеты не ждали друг друга по кругу
+        itemRepository.findAllById(itemIds).stream()
+                .sorted(Comparator.comparing(Item::getId))
+                .forEach(itemRepository::lockForBooking);
+        Set<Long> rejected = new HashSet<>(bookingRepository.findOverlappingIds(toUpdate, BLOCKING_STATUSES));
+
+        Map<Long, List<Booking>> byItem = toUpdate.stream()
+                .filter(id -> !rejected.contains(id))
+                .map(bookings::get)
+                .collect(Collectors.groupingBy(b -> b.getItem().getId()));
+        for (List<Booking> itemBookings : byItem.values()) {
+            itemBookings.sort(Comparator.comparing(Booking::getStart));
+            LocalDateTime approvedUntil = null;
+            for (Booking booking : itemBookings) {
+                if (approvedUntil != null && booking.getStart().isBefore(approvedUntil)) {
+                    rejected.add(booking.getId());
+                } else {
+                    approvedUntil = booking.getEnd();
+                }
+            }
+        }
+
+        toUpdate.removeAll(rejected);
+        results.replaceAll(result -> rejected.contains(result.getBookingId())
+                ? BookingBatchResultDto.failed(result.getBookingId(),
+                "Время бронирования пересекается с другим бронированием")
+                : result);
+    }
+
     private Booking checkBooking(Long bookingId) {
         return bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new NotFoundException("Бронирование не найдено"));
@@ -2,6 +2,8 @@ package ru.practicum.shareit.exception;
 
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -27,6 +29,29 @@ public class ErrorHandler {
         return new ErrorMessage(e.getMessage());
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorMessage handleExceptionConflict(ConflictException e) {
+        log.error("409 {} {}", TAG, e.getMessage(), e);
+        return new ErrorMessage(e.getMessage());
+    }
+
+    //Конфликт версий вне OptimisticRetry: клиент может повторить запрос
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorMessage handleExceptionOptimisticLocking(OptimisticLockingFailureException e) {
+        log.error("409 {} {}", TAG, e.getMessage(), e);
+        return new ErrorMessage("Данные изменены параллельным запросом, повторите попытку");
+    }
+
+    //Нарушение ограничения базы, например пересечение бронирований в ex_bookings_item_period на PostgreSQL
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorMessage handleExceptionDataIntegrity(DataIntegrityViolationException e) {
+        log.error("409 {} {}", TAG, e.getMessage(), e);
+        return new ErrorMessage("Данные противоречат ограничениям базы, проверьте запрос");
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.CONFLICT)
     public ErrorMessage handleExceptionConstraintViolation(ConstraintViolationException e) {
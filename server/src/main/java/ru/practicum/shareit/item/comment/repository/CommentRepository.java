@@ -1,6 +1,7 @@
 package ru.practicum.shareit.item.comment.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.item.comment.model.Comment;
 
 import java.util.List;
@@ -8,4 +9,12 @@ import java.util.List;
 public interface CommentRepository extends JpaRepository<Comment, Long> {
 
     List<Comment> getAllByItemId(Long itemId);
+
+    //Метод для getAllItemsByUserId: отзывы для всех вещей страницы одним запросом,
+    //вещь отзыва загружается тем же запросом, а не отдельным select на каждую вещь
+    @Query("select c from Comment c " +
+            "join fetch c.item " +
+            "join fetch c.author " +
+            "where c.item.id in ?1")
+    List<Comment> findAllByItemIdIn(List<Long> itemIds);
 }
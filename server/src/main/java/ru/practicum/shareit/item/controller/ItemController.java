@@ -4,16 +4,20 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.item.comment.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.service.ItemService;
 import ru.practicum.shareit.item.validation.ValidationItem;
 import ru.practicum.shareit.utils.CheckPage;
+import ru.practicum.shareit.utils.ETagGenerator;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -26,6 +30,7 @@ public class ItemController {
 
     private final ItemService itemService;
     private final CheckPage checkPage;
+    private final ETagGenerator eTagGenerator;
 
     @PostMapping
     public ResponseEntity<ItemDto> createItem(@RequestBody @Validated(ValidationItem.Create.class) ItemDto itemDto,
@@ -41,6 +46,13 @@ public class ItemController {
         return new ResponseEntity<>(result, HttpStatus.CREATED);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<ItemDto>> createItems(@RequestBody List<ItemDto> itemDtos,
+                                                     @RequestHeader(value = "X-Sharer-User-Id") Long userId) {
+        log.info("{} - Пришел запрос на добавление {} вещей", TAG, itemDtos.size());
+        return new ResponseEntity<>(itemService.createAll(itemDtos, userId), HttpStatus.CREATED);
+    }
+
     @PostMapping("/{itemId}/comment")
     public ResponseEntity<CommentDto> createItemComment(@PathVariable Long itemId,
                                                         @RequestBody CommentDto commentDto,
@@ -54,7 +66,31 @@ public class ItemController {
                                            @RequestHeader("X-Sharer-User-Id") Long userId) {
         log.info("{} - Пришел запрос на получение вещи по id {}", TAG, itemId);
         itemService.checkItemId(itemId);
-        return new ResponseEntity<>(itemService.getItem(userId, itemId), HttpStatus.OK);
+        ItemDto result = itemService.getItem(userId, itemId);
+        return ResponseEntity.ok().eTag(eTagGenerator.strongETag(result)).body(result);
+    }
+
+    @GetMapping("/{itemId}/availability")
+    public ResponseEntity<ItemAvailabilityDto> getAvailability(@PathVariable Long itemId,
+                                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                               LocalDateTime from,
+                                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                               LocalDateTime to,
+                                                               @RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("{} - Пришел запрос на получение занятости вещи по id {}", TAG, itemId);
+        itemService.checkItemId(itemId);
+        return new ResponseEntity<>(itemService.getAvailability(userId, itemId, from, to), HttpStatus.OK);
+    }
+
+    @GetMapping("/availability")
+    public ResponseEntity<List<ItemAvailabilityDto>> getAvailability(@RequestParam List<Long> ids,
+                                                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                                     LocalDateTime from,
+                                                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                                     LocalDateTime to,
+                                                                     @RequestHeader("X-Sharer-User-Id") Long userId) {
+        log.info("{} - Пришел запрос на получение занятости {} вещей", TAG, ids.size());
+        return new ResponseEntity<>(itemService.getAvailability(userId, ids, from, to), HttpStatus.OK);
     }
 
     @GetMapping
@@ -0,0 +1,30 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Календарь вещи в интервале [from, to): объединенные занятые промежутки и свободные промежутки между ними.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ItemAvailabilityDto {
+    private final Long itemId;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final List<Slot> busy;
+    private final List<Slot> free;
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Slot {
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+    }
+}
@@ -24,7 +24,8 @@ public class ItemMapper {
                 itemDto.getDescription(),
                 itemDto.getOwner(),
                 itemDto.getAvailable(),
-                itemDto.getRequest()
+                itemDto.getRequest(),
+                0L
         );
     }
 
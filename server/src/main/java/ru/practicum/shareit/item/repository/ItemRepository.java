@@ -2,14 +2,22 @@ package ru.practicum.shareit.item.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.item.model.Item;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface ItemRepository extends JpaRepository<Item, Long> {
+public interface ItemRepository extends JpaRepository<Item, Long>, ItemRepositoryCustom {
 
+    @Override
+    @EntityGraph("Item.detail")
+    Optional<Item> findById(Long id);
+
+    @EntityGraph("Item.detail")
     @Query(" select i from Item i " +
             "where i.available = true and" +
             " (upper(i.name) like upper(concat('%', ?1, '%')) " +
@@ -18,5 +26,8 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
 
     List<Item> findAllByOwnerIdOrderByIdAsc(Long userId);
 
+    @EntityGraph("Item.detail")
     Page<Item> findAllByOwnerIdOrderByIdAsc(Long userId, Pageable pageable);
+
+    long countByIdIn(Collection<Long> ids);
 }
@@ -0,0 +1,11 @@
+package ru.practicum.shareit.item.repository;
+
+import ru.practicum.shareit.item.model.Item;
+
+public interface ItemRepositoryCustom {
+
+    //Строка вещи блокируется до проверки пересечений бронирований, а версия увеличивается сразу.
+    //Параллельная транзакция по той же вещи ждет фиксации первой, получает конфликт версий,
+    //повторяется через OptimisticRetry и видит ее бронирование
+    void lockForBooking(Item item);
+}
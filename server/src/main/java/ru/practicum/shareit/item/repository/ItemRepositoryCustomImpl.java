@@ -0,0 +1,19 @@
+package ru.practicum.shareit.item.repository;
+
+import ru.practicum.shareit.item.model.Item;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+
+public class ItemRepositoryCustomImpl implements ItemRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    //Блокировка через запрос не применяется к вещи, уже загруженной в контекст, поэтому lock у EntityManager
+    @Override
+    public void lockForBooking(Item item) {
+        entityManager.lock(item, LockModeType.PESSIMISTIC_FORCE_INCREMENT);
+    }
+}
@@ -2,14 +2,18 @@ package ru.practicum.shareit.item.service;
 
 import org.springframework.data.domain.Pageable;
 import ru.practicum.shareit.item.comment.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ItemService {
 
     ItemDto create(ItemDto item, Long userId);
 
+    List<ItemDto> createAll(List<ItemDto> items, Long userId);
+
     CommentDto createComment(CommentDto comment, Long itemId, Long userId);
 
     ItemDto getItem(Long userId, Long itemId);
@@ -20,6 +24,10 @@ public interface ItemService {
 
     List<ItemDto> searchByText(String text, Long userId, Pageable pageable);
 
+    ItemAvailabilityDto getAvailability(Long userId, Long itemId, LocalDateTime from, LocalDateTime to);
+
+    List<ItemAvailabilityDto> getAvailability(Long userId, List<Long> itemIds, LocalDateTime from, LocalDateTime to);
+
     void delete(Long id);
 
     void checkItemId(Long id);
@@ -2,10 +2,12 @@ package ru.practicum.shareit.item.service;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.BookingPeriod;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.StatusBooking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
@@ -15,17 +17,30 @@ import ru.practicum.shareit.item.comment.dto.CommentDto;
 import ru.practicum.shareit.item.comment.mapper.CommentMapper;
 import ru.practicum.shareit.item.comment.model.Comment;
 import ru.practicum.shareit.item.comment.repository.CommentRepository;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.repository.RequestRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.utils.CheckExistence;
+import ru.practicum.shareit.utils.OptimisticRetry;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -33,6 +48,9 @@ import java.util.List;
 public class ItemServiceImpl implements ItemService {
 
     private static final String TAG = "ITEM SERVICE";
+    private static final Duration AVAILABILITY_MAX_PERIOD = Duration.ofDays(366);
+    //Отклоненные и отмененные (в том числе просроченные) бронирования не показываются как последнее/следующее
+    private static final List<StatusBooking> HIDDEN_STATUSES = List.of(StatusBooking.REJECTED, StatusBooking.CANCELED);
 
     private final ItemRepository itemRepository;
     private final UserRepository userRepository;
@@ -41,6 +59,8 @@ public class ItemServiceImpl implements ItemService {
     private final ItemMapper itemMapper;
     private final CommentMapper commentMapper;
     private final RequestRepository requestRepository;
+    private final CheckExistence checkExistence;
+    private final OptimisticRetry optimisticRetry;
 
     @Override
     @Transactional
@@ -59,6 +79,37 @@ public class ItemServiceImpl implements ItemService {
         return itemMapper.toItemDto(itemRepository.save(item));
     }
 
+    @Override
+    @Transactional
+    public List<ItemDto> createAll(List<ItemDto> itemDtos, Long userId) {
+        log.info("{} - Обработка запроса на добавление {} вещей", TAG, itemDtos.size());
+        User owner = checkUser(userId);
+        Set<Long> requestIds = new HashSet<>();
+        for (ItemDto itemDto : itemDtos) {
+            if (itemDto.getDescription() == null || itemDto.getDescription().isBlank()) {
+                throw new ValidationException("Описание не может быть пустым");
+            }
+            if (itemDto.getRequestId() != null) {
+                requestIds.add(itemDto.getRequestId());
+            }
+        }
+        Map<Long, ItemRequest> requests = requestRepository.findAllById(requestIds).stream()
+                .collect(Collectors.toMap(ItemRequest::getId, Function.identity()));
+        if (requests.size() != requestIds.size()) {
+            throw new NotFoundException("Потребность отсутствует");
+        }
+
+        List<Item> items = itemMapper.toItems(itemDtos);
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            item.setId(null);
+            item.setOwner(owner);
+            item.setRequest(requests.get(itemDtos.get(i).getRequestId()));
+        }
+        //id выдаются из последовательности заранее, поэтому вставки уходят в базу пакетами
+        return itemMapper.toItemsDto(itemRepository.saveAll(items));
+    }
+
     @Override
     @Transactional
     public CommentDto createComment(CommentDto commentDto, Long itemId, Long userId) {
@@ -84,7 +135,7 @@ public class ItemServiceImpl implements ItemService {
     @Override
     public ItemDto getItem(Long userId, Long itemId) {
         log.info("{} - Обработка запроса на получение вещи по id {}", TAG, itemId);
-        checkUser(userId);
+        checkExistence.checkUser(userId);
         Item item = checkItem(itemId);
         Booking last = getLast(item.getId(), userId);
         Booking next = getNext(item.getId(), userId);
@@ -96,7 +147,7 @@ public class ItemServiceImpl implements ItemService {
     @Override
     public List<ItemDto> getAllItemsByUserId(Long id, Pageable pageable) {
         log.info("{} - Обработка получения всех вещей пользователя с id {}", TAG, id);
-        checkUser(id);
+        checkExistence.checkUser(id);
         Page<Item> items = itemRepository.findAllByOwnerIdOrderByIdAsc(id, pageable);
         List<ItemDto> result = new ArrayList<>();
 
@@ -107,12 +158,16 @@ public class ItemServiceImpl implements ItemService {
             ids.add(item.getId());
         }
 
-        List<Booking> bookings = bookingRepository.findByItemIdInAndStatusNot(ids, StatusBooking.REJECTED);
+        List<Booking> bookings = bookingRepository.findByItemIdInAndStatusNotIn(ids, HIDDEN_STATUSES);
+        Map<Long, List<Comment>> commentsByItem = getCommentsForGetItems(ids);
+        Map<Long, Booking> lastByItem = new HashMap<>();
+        Map<Long, Booking> nextByItem = new HashMap<>();
+        fillLastAndNextBookingsForGetItems(bookings, LocalDateTime.now(), lastByItem, nextByItem);
 
         for (Item item : itemList) {
-            Booking last = getLastBookingForGetItems(bookings, LocalDateTime.now(), item.getId());
-            Booking next = getNextBookingForGetItems(bookings, LocalDateTime.now(), item.getId());
-            List<Comment> comments = commentRepository.getAllByItemId(item.getId());
+            Booking last = lastByItem.get(item.getId());
+            Booking next = nextByItem.get(item.getId());
+            List<Comment> comments = commentsByItem.getOrDefault(item.getId(), Collections.emptyList());
             List<CommentDto> commentsDto = commentMapper.toCommentsDto(comments);
             result.add(itemMapper.toItemDto(item, last, next, commentsDto));
         }
@@ -120,15 +175,20 @@ public class ItemServiceImpl implements ItemService {
     }
 
     @Override
-    @Transactional
     public ItemDto update(ItemDto itemDto, Long id, Long userId) {
         log.info("{} - Обработка запроса на обновление вещи {}", TAG, itemDto);
+        return optimisticRetry.inTransaction(() -> updateItem(itemDto, id, userId));
+    }
+
+    private ItemDto updateItem(ItemDto itemDto, Long id, Long userId) {
         Item item = itemMapper.toItem(itemDto);
         Item temp = checkItem(id);
         User owner = checkUser(userId);
         if (item.getId() == null) {
             item.setId(temp.getId());
         }
+        //Изменения накладываются на прочитанную версию; если вещь успели изменить, попытка повторится
+        item.setVersion(temp.getVersion());
         if (item.getName() == null || item.getName().isBlank()) {
             item.setName(temp.getName());
         }
@@ -155,11 +215,52 @@ public class ItemServiceImpl implements ItemService {
         return itemMapper.toItemsDto(result.toList());
     }
 
+    @Override
+    public ItemAvailabilityDto getAvailability(Long userId, Long itemId, LocalDateTime from, LocalDateTime to) {
+        log.info("{} - Обработка запроса на получение занятости вещи по id {}", TAG, itemId);
+        checkAvailabilityPeriod(from, to);
+        checkExistence.checkUser(userId);
+        checkExistence.checkItem(itemId);
+        return toAvailability(itemId, from, to,
+                bookingRepository.findPeriods(List.of(itemId), from, to, List.of(StatusBooking.WAITING,
+                        StatusBooking.APPROVED)));
+    }
+
+    @Override
+    public List<ItemAvailabilityDto> getAvailability(Long userId, List<Long> itemIds, LocalDateTime from,
+                                                     LocalDateTime to) {
+        log.info("{} - Обработка запроса на получение занятости {} вещей", TAG, itemIds.size());
+        checkAvailabilityPeriod(from, to);
+        checkExistence.checkUser(userId);
+        Set<Long> ids = new LinkedHashSet<>(itemIds);
+        if (itemRepository.countByIdIn(ids) != ids.size()) {
+            throw new NotFoundException("Вещь не найдена");
+        }
+        Map<Long, List<BookingPeriod>> periodsByItem = new HashMap<>();
+        for (BookingPeriod period : bookingRepository.findPeriods(ids, from, to, List.of(StatusBooking.WAITING,
+                StatusBooking.APPROVED))) {
+            periodsByItem.computeIfAbsent(period.getItemId(), id -> new ArrayList<>()).add(period);
+        }
+        List<ItemAvailabilityDto> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            result.add(toAvailability(id, from, to, periodsByItem.getOrDefault(id, Collections.emptyList())));
+        }
+        return result;
+    }
+
     @Override
     public void delete(Long id) {
         log.info("{} - Обработка запроса на удаление вещи по id {}", TAG, id);
-        checkItem(id);
-        itemRepository.deleteById(id);
+        //Наличие проверяется по базе: запись кэша могла устареть, а вещь - удалиться параллельным запросом
+        checkExistence.evictItem(id);
+        if (!itemRepository.existsById(id)) {
+            throw new NotFoundException("Вещь не найдена");
+        }
+        try {
+            itemRepository.deleteById(id);
+        } catch (EmptyResultDataAccessException e) {
+            throw new NotFoundException("Вещь не найдена");
+        }
     }
 
     @Override
@@ -179,66 +280,90 @@ public class ItemServiceImpl implements ItemService {
                 .orElseThrow(() -> new NotFoundException("Вещь не найдена"));
     }
 
-    private Booking getLast(Long itemId, Long userId) {
-        List<Booking> temp = bookingRepository.findPastOwnerBookings(itemId, userId, LocalDateTime.now());
-        if (temp.isEmpty()) {
-            return null;
+    private void checkAvailabilityPeriod(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new ValidationException("Некорректный интервал");
         }
-        return temp.get(0);
-    }
-
-    private Booking getNext(Long itemId, Long userId) {
-        List<Booking> temp = bookingRepository.findFutureOwnerBookings(itemId, userId, LocalDateTime.now());
-        if (temp.isEmpty()) {
-            return null;
+        if (Duration.between(from, to).compareTo(AVAILABILITY_MAX_PERIOD) > 0) {
+            throw new ValidationException("Интервал не может превышать " + AVAILABILITY_MAX_PERIOD.toDays() + " дней");
         }
-        return temp.get(0);
     }
 
-    private Booking getLastBookingForGetItems(List<Booking> bookings, LocalDateTime now, Long itemId) {
-        if (bookings.isEmpty()) {
-            return null;
-        }
-        Booking result = null;
-        for (Booking booking : bookings) {
-            if (!booking.getItem().getId().equals(itemId)) {
+    //Интервалы отсортированы по началу, поэтому пересекающиеся и смежные сливаются за один проход
+    private ItemAvailabilityDto toAvailability(Long itemId, LocalDateTime from, LocalDateTime to,
+                                               List<BookingPeriod> periods) {
+        List<ItemAvailabilityDto.Slot> busy = new ArrayList<>();
+        List<ItemAvailabilityDto.Slot> free = new ArrayList<>();
+        LocalDateTime start = null;
+        LocalDateTime end = null;
+        for (BookingPeriod period : periods) {
+            LocalDateTime periodStart = period.getStart().isBefore(from) ? from : period.getStart();
+            LocalDateTime periodEnd = period.getEnd().isAfter(to) ? to : period.getEnd();
+            if (end != null && !periodStart.isAfter(end)) {
+                if (periodEnd.isAfter(end)) {
+                    end = periodEnd;
+                }
                 continue;
             }
-            if (booking.getStart().isBefore(now)) {
-                if (result == null &&
-                        ((booking.getStatus().equals(StatusBooking.APPROVED)))) {
-                    result = booking;
-                } else if (result == null) {
-                    result = booking;
-                } else if (booking.getEnd().isAfter(result.getEnd())) {
-                    result = booking;
-                }
+            if (end != null) {
+                busy.add(new ItemAvailabilityDto.Slot(start, end));
             }
+            start = periodStart;
+            end = periodEnd;
         }
-        return result;
+        if (end != null) {
+            busy.add(new ItemAvailabilityDto.Slot(start, end));
+        }
+
+        LocalDateTime freeStart = from;
+        for (ItemAvailabilityDto.Slot slot : busy) {
+            if (slot.getStart().isAfter(freeStart)) {
+                free.add(new ItemAvailabilityDto.Slot(freeStart, slot.getStart()));
+            }
+            freeStart = slot.getEnd();
+        }
+        if (freeStart.isBefore(to)) {
+            free.add(new ItemAvailabilityDto.Slot(freeStart, to));
+        }
+        return new ItemAvailabilityDto(itemId, from, to, busy, free);
     }
 
-    private Booking getNextBookingForGetItems(List<Booking> bookings, LocalDateTime now, Long itemId) {
-        if (bookings.isEmpty()) {
-            return null;
+    private Booking getLast(Long itemId, Long userId) {
+        return bookingRepository.findFirstByItemIdAndOwnerIdAndStartBeforeAndStatusNotInOrderByEndDesc(itemId,
+                userId, LocalDateTime.now(), HIDDEN_STATUSES).orElse(null);
+    }
+
+    private Booking getNext(Long itemId, Long userId) {
+        return bookingRepository.findFirstByItemIdAndOwnerIdAndStartAfterAndStatusNotInOrderByStartAsc(itemId,
+                userId, LocalDateTime.now(), HIDDEN_STATUSES).orElse(null);
+    }
+
+    private Map<Long, List<Comment>> getCommentsForGetItems(List<Long> itemIds) {
+        Map<Long, List<Comment>> result = new HashMap<>();
+        if (itemIds.isEmpty()) {
+            return result;
         }
-        Booking result = null;
+        for (Comment comment : commentRepository.findAllByItemIdIn(itemIds)) {
+            result.computeIfAbsent(comment.getItem().getId(), id -> new ArrayList<>()).add(comment);
+        }
+        return result;
+    }
+
+    private void fillLastAndNextBookingsForGetItems(List<Booking> bookings, LocalDateTime now,
+                                                    Map<Long, Booking> last, Map<Long, Booking> next) {
         for (Booking booking : bookings) {
-            if (!booking.getItem().getId().equals(itemId)) {
-                continue;
-            }
-            if (booking.getStart().isAfter(now)) {
-                if (result == null &&
-                        ((booking.getStatus().equals(StatusBooking.APPROVED)) ||
-                                (booking.getStatus().equals(StatusBooking.WAITING)))) {
-                    result = booking;
-                } else if (result == null) {
-                    result = booking;
-                } else if (booking.getStart().isBefore(result.getStart())) {
-                    result = booking;
+            Long itemId = booking.getItem().getId();
+            if (booking.getStart().isBefore(now)) {
+                Booking current = last.get(itemId);
+                if (current == null || booking.getEnd().isAfter(current.getEnd())) {
+                    last.put(itemId, booking);
+                }
+            } else if (booking.getStart().isAfter(now)) {
+                Booking current = next.get(itemId);
+                if (current == null || booking.getStart().isBefore(current.getStart())) {
+                    next.put(itemId, booking);
                 }
             }
         }
-        return result;
     }
 }
@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.service.RequestService;
 import ru.practicum.shareit.utils.CheckPage;
+import ru.practicum.shareit.utils.ETagGenerator;
 import ru.practicum.shareit.utils.SortPage;
 
 import java.util.List;
@@ -23,6 +24,7 @@ public class ItemRequestController {
     private final RequestService requestService;
     private final CheckPage checkPage;
     private final SortPage sortPage;
+    private final ETagGenerator eTagGenerator;
 
     @PostMapping
     public ResponseEntity<ItemRequestDto> createItemRequest(@RequestBody ItemRequestDto itemRequestDto,
@@ -59,6 +61,7 @@ public class ItemRequestController {
     public ResponseEntity<ItemRequestDto> getItemRequest(@PathVariable Long requestId,
                                                          @RequestHeader("X-Sharer-User-Id") Long userId) {
         log.info("{} -  Пришел запрос на получение пользователем {} потребности по id {}", TAG, userId, requestId);
-        return new ResponseEntity<>(requestService.getItemRequest(requestId, userId), HttpStatus.OK);
+        ItemRequestDto result = requestService.getItemRequest(requestId, userId);
+        return ResponseEntity.ok().eTag(eTagGenerator.strongETag(result)).body(result);
     }
 }
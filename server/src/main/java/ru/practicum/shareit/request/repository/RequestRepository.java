@@ -1,6 +1,7 @@
 package ru.practicum.shareit.request.repository;
 
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.request.model.ItemRequest;
@@ -9,8 +10,10 @@ import java.util.List;
 
 public interface RequestRepository extends JpaRepository<ItemRequest, Long> {
 
+    @EntityGraph(attributePaths = "requester")
     List<ItemRequest> findAllByRequesterId(Long userId, PageRequest pageRequest);
 
+    @EntityGraph(attributePaths = "requester")
     @Query("select r from ItemRequest r " +
             "where r.requester.id != ?1")
     List<ItemRequest> findAll(Long userId, PageRequest pageRequest);
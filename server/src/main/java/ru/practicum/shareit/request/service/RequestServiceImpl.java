@@ -13,6 +13,7 @@ import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.repository.RequestRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.utils.CheckExistence;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -26,6 +27,7 @@ public class RequestServiceImpl implements RequestService {
     private final RequestRepository requestRepository;
     private final RequestMapper requestMapper;
     private final UserRepository userRepository;
+    private final CheckExistence checkExistence;
 
     @Override
     @Transactional
@@ -44,7 +46,7 @@ public class RequestServiceImpl implements RequestService {
     @Override
     public List<ItemRequestDto> getItemRequestsUserSorted(Long userId, PageRequest pageRequest) {
         log.info("{} - Обработка запроса на получение всех потребностей пользователя {}", TAG, userId);
-        checkUser(userId);
+        checkExistence.checkUser(userId);
         List<ItemRequest> itemRequests = requestRepository.findAllByRequesterId(userId, pageRequest);
         return requestMapper.toItemRequestsDto(itemRequests);
     }
@@ -52,7 +54,7 @@ public class RequestServiceImpl implements RequestService {
     @Override
     public List<ItemRequestDto> getAllItemRequestsSorted(Long userId, PageRequest pageRequest) {
         log.info("{} - Обработка запроса пользователя {} на получение всех потребностей остальных пользователей", TAG, userId);
-        checkUser(userId);
+        checkExistence.checkUser(userId);
         List<ItemRequest> itemRequests = requestRepository.findAll(userId, pageRequest);
         return requestMapper.toItemRequestsDto(itemRequests);
     }
@@ -60,7 +62,7 @@ public class RequestServiceImpl implements RequestService {
     @Override
     public ItemRequestDto getItemRequest(Long requestId, Long userId) {
         log.info("{} - Обработка запроса на получение пользователем {} потребности по id {}", TAG, userId, requestId);
-        checkUser(userId);
+        checkExistence.checkUser(userId);
         ItemRequest itemRequest = checkItemRequest(requestId);
         return requestMapper.toItemRequestDto(itemRequest);
     }
@@ -4,4 +4,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import ru.practicum.shareit.user.model.User;
 
 public interface UserRepository extends JpaRepository<User, Long> {
+
+    //Метод для findUserByEmail, использует индекс ограничения uq_email
+    boolean existsByEmail(String email);
 }
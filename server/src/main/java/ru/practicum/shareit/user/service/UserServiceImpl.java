@@ -5,11 +5,15 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.mapper.UserMapper;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.utils.CheckExistence;
 
+import javax.persistence.EntityManagerFactory;
 import java.util.List;
 
 @Slf4j
@@ -20,6 +24,8 @@ public class UserServiceImpl implements UserService {
     private static final String TAG = "USER SERVICE";
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final CheckExistence checkExistence;
+    private final EntityManagerFactory entityManagerFactory;
 
     @Override
     @Transactional
@@ -65,15 +71,17 @@ public class UserServiceImpl implements UserService {
         userRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Пользователь не найден"));
         userRepository.deleteById(id);
+        checkExistence.evictUser(id);
+        //Вещи и запросы пользователя удаляются каскадно в базе, минуя кэш второго уровня
+        entityManagerFactory.getCache().evict(Item.class);
+        entityManagerFactory.getCache().evict(ItemRequest.class);
     }
 
     @Override
     public int findUserByEmail(String email) {
-        for (User exp : userRepository.findAll()) {
-            if (exp.getEmail().equals(email)) {
-                return 1;
-            }
+        if (email == null) {
+            return 0;
         }
-        return 0;
+        return userRepository.existsByEmail(email) ? 1 : 0;
     }
 }
\ No newline at end of file
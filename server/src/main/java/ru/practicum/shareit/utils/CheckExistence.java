@@ -0,0 +1,62 @@
+package ru.practicum.shareit.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.Duration;
+
+/**
+ * Проверка существования пользователей и вещей, когда сама сущность не нужна.
+ * Подтвержденные id хранятся в ограниченном по размеру и времени кэше.
+ */
+@Component
+public class CheckExistence {
+
+    private final UserRepository userRepository;
+    private final ItemRepository itemRepository;
+    private final Cache<Long, Boolean> users;
+    private final Cache<Long, Boolean> items;
+
+    public CheckExistence(UserRepository userRepository,
+                          ItemRepository itemRepository,
+                          @Value("${shareit.existence-cache.maximum-size:10000}") long maximumSize,
+                          @Value("${shareit.existence-cache.ttl:60s}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.itemRepository = itemRepository;
+        this.users = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl).build();
+        this.items = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(ttl).build();
+    }
+
+    public void checkUser(Long userId) {
+        if (users.getIfPresent(userId) == null) {
+            if (!userRepository.existsById(userId)) {
+                throw new NotFoundException("Пользователь не найден");
+            }
+            users.put(userId, Boolean.TRUE);
+        }
+    }
+
+    public void checkItem(Long itemId) {
+        if (items.getIfPresent(itemId) == null) {
+            if (!itemRepository.existsById(itemId)) {
+                throw new NotFoundException("Вещь не найдена");
+            }
+            items.put(itemId, Boolean.TRUE);
+        }
+    }
+
+    //Вещи удаляются каскадно вместе с владельцем, поэтому сбрасываем и их
+    public void evictUser(Long userId) {
+        users.invalidate(userId);
+        items.invalidateAll();
+    }
+
+    public void evictItem(Long itemId) {
+        items.invalidate(itemId);
+    }
+}
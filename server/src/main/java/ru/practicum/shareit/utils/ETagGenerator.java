@@ -0,0 +1,26 @@
+package ru.practicum.shareit.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Строгий ETag по содержимому ответа.
+ * Если заголовок If-None-Match совпадает с ETag, Spring MVC сам отвечает 304 без тела.
+ */
+@Component
+@AllArgsConstructor
+public class ETagGenerator {
+
+    private final ObjectMapper objectMapper;
+
+    public String strongETag(Object body) {
+        try {
+            return "\"" + DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(body)) + "\"";
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось вычислить ETag ответа", e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ru.practicum.shareit.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.exception.ConflictException;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Выполнение действия в отдельной транзакции с повтором при конфликте версий.
+ * Каждая попытка заново читает данные, поэтому проверки сервиса выполняются на актуальном состоянии.
+ * Вызывается вне транзакции: внутри чужой транзакции повторять нечего.
+ */
+@Slf4j
+@Component
+public class OptimisticRetry {
+    private static final String TAG = "OPTIMISTIC RETRY";
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Counter conflicts;
+    private final Counter exhausted;
+
+    public OptimisticRetry(PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${shareit.optimistic-retry.max-attempts:5}") int maxAttempts,
+                           @Value("${shareit.optimistic-retry.backoff:10ms}") Duration backoff) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.conflicts = meterRegistry.counter("shareit.optimistic.conflicts");
+        this.exhausted = meterRegistry.counter("shareit.optimistic.exhausted");
+    }
+
+    public <T> T inTransaction(Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (ConcurrencyFailureException e) {
+                conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    log.warn("{} конфликт не разрешен за {} попыток: {}", TAG, attempt, e.getMessage());
+                    throw new ConflictException("Данные изменены параллельным запросом, повторите попытку");
+                }
+                log.debug("{} конфликт при попытке {}, повтор: {}", TAG, attempt, e.getMessage());
+                pause(attempt);
+            }
+        }
+    }
+
+    //Случайная пауза растет с номером попытки, чтобы конкурирующие запросы не повторялись одновременно
+    private void pause(int attempt) {
+        long bound = backoff.toNanos() * attempt;
+        if (bound > 0) {
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(bound));
+        }
+    }
+}
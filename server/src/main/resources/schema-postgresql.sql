@@ -0,0 +1,13 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+CREATE INDEX IF NOT EXISTS ix_items_name_trgm ON items USING gin (upper(name) gin_trgm_ops)
+    WHERE available = true;
+
+CREATE INDEX IF NOT EXISTS ix_items_description_trgm ON items USING gin (upper(description) gin_trgm_ops)
+    WHERE available = true;
+
+-- Ожидающие и подтвержденные бронирования одной вещи не могут пересекаться по времени [start, end)
+ALTER TABLE bookings ADD CONSTRAINT ex_bookings_item_period
+    EXCLUDE USING gist (item_id WITH =, tsrange(start_date, end_date) WITH &&)
+    WHERE (status IN ('WAITING', 'APPROVED'));
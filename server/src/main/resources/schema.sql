@@ -3,6 +3,9 @@ DROP TABLE IF EXISTS requests CASCADE;
 DROP TABLE IF EXISTS items CASCADE;
 DROP TABLE IF EXISTS bookings CASCADE;
 DROP TABLE IF EXISTS comments CASCADE;
+DROP SEQUENCE IF EXISTS items_id_seq;
+
+CREATE SEQUENCE IF NOT EXISTS items_id_seq START WITH 1 INCREMENT BY 50;
 
 CREATE TABLE IF NOT EXISTS users
 (
@@ -25,12 +28,13 @@ CREATE TABLE IF NOT EXISTS requests
 
 CREATE TABLE IF NOT EXISTS items
 (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    id BIGINT NOT NULL,
     name VARCHAR(255) NOT NULL,
     description VARCHAR(2000),
     owner_id BIGINT NOT NULL,
     available BOOLEAN,
     request_id BIGINT,
+    version BIGINT DEFAULT 0 NOT NULL,
     CONSTRAINT pk_item_id PRIMARY KEY (id),
     CONSTRAINT fk_owner_id FOREIGN KEY (owner_id) REFERENCES users (id) ON DELETE CASCADE,
     CONSTRAINT fk_request_id FOREIGN KEY (request_id) REFERENCES requests (id) ON DELETE CASCADE,
@@ -45,9 +49,13 @@ CREATE TABLE IF NOT EXISTS bookings
     item_id BIGINT,
     booker_id BIGINT,
     status VARCHAR(10) NOT NULL,
+    owner_id BIGINT,
+    version BIGINT DEFAULT 0 NOT NULL,
+    phase VARCHAR(10) NOT NULL,
     CONSTRAINT pk_booking_id PRIMARY KEY (id),
     CONSTRAINT fk_item_id_booking FOREIGN KEY (item_id) REFERENCES items(id) ON DELETE CASCADE,
-    CONSTRAINT fk_booker_id FOREIGN KEY (booker_id) REFERENCES users(id) ON DELETE CASCADE
+    CONSTRAINT fk_booker_id FOREIGN KEY (booker_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT fk_owner_id_booking FOREIGN KEY (owner_id) REFERENCES users(id) ON DELETE CASCADE
 );
 
 CREATE TABLE IF NOT EXISTS comments
@@ -60,4 +68,21 @@ CREATE TABLE IF NOT EXISTS comments
     CONSTRAINT pk_comment_id PRIMARY KEY (id),
     CONSTRAINT fk_item_id_comment FOREIGN KEY (item_id) REFERENCES items(id) ON DELETE CASCADE,
     CONSTRAINT fk_author_id FOREIGN KEY (author_id) REFERENCES users(id) ON DELETE CASCADE
-);
\ No newline at end of file
+);
+
+CREATE INDEX IF NOT EXISTS ix_items_owner_id ON items (owner_id, id);
+CREATE INDEX IF NOT EXISTS ix_items_request_id ON items (request_id);
+CREATE INDEX IF NOT EXISTS ix_requests_requester_id ON requests (requester_id, creation_date DESC);
+CREATE INDEX IF NOT EXISTS ix_comments_item_id ON comments (item_id);
+
+CREATE INDEX IF NOT EXISTS ix_bookings_booker_start ON bookings (booker_id, start_date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS ix_bookings_booker_status_start ON bookings (booker_id, status, start_date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS ix_bookings_booker_phase_start ON bookings (booker_id, phase, start_date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS ix_bookings_booker_end ON bookings (booker_id, end_date);
+CREATE INDEX IF NOT EXISTS ix_bookings_item_start ON bookings (item_id, start_date DESC);
+CREATE INDEX IF NOT EXISTS ix_bookings_item_end ON bookings (item_id, end_date);
+CREATE INDEX IF NOT EXISTS ix_bookings_owner_start ON bookings (owner_id, start_date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS ix_bookings_owner_status_start ON bookings (owner_id, status, start_date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS ix_bookings_owner_phase_start ON bookings (owner_id, phase, start_date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS ix_bookings_phase_start ON bookings (phase, start_date);
+CREATE INDEX IF NOT EXISTS ix_bookings_status_start ON bookings (status, start_date);
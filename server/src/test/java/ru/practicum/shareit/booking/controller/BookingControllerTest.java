@@ -5,23 +5,36 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingCursor;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
+import ru.practicum.shareit.booking.model.StatusBooking;
 import ru.practicum.shareit.booking.service.BookingService;
 import ru.practicum.shareit.utils.CheckPage;
+import ru.practicum.shareit.utils.ETagGenerator;
 
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = BookingController.class)
+@Import(ETagGenerator.class)
 class BookingControllerTest {
 
     @Autowired
@@ -72,6 +85,26 @@ class BookingControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void approveBatchTest() throws Exception {
+        when(bookingService.approvedBookings(1L, List.of(1L, 2L), true)).thenReturn(List.of(
+                BookingBatchResultDto.updated(1L, StatusBooking.APPROVED),
+                BookingBatchResultDto.failed(2L, "Бронирование не найдено")));
+
+        mockMvc.perform(patch("/bookings/batch")
+                        .content(objectMapper.writeValueAsString(List.of(1L, 2L)))
+                        .param("approved", "true")
+                        .header("X-Sharer-User-Id", 1L)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status", is("APPROVED")))
+                .andExpect(jsonPath("$[1].error", is("Бронирование не найдено")));
+
+        verify(bookingService, never()).approvedBooking(anyLong(), anyLong(), any());
+    }
+
     @Test
     void getByIdTest() throws Exception {
         BookingDto request = new BookingDto();
@@ -88,6 +121,40 @@ class BookingControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void getByIdTestNotModified() throws Exception {
+        BookingDto booking = new BookingDto();
+        booking.setId(1L);
+        booking.setStatus(StatusBooking.WAITING);
+
+        when(bookingService.getById(1L, 1L)).thenReturn(booking);
+
+        String eTag = mockMvc.perform(get("/bookings/{bookingId}", 1L)
+                        .header("X-Sharer-User-Id", 1L)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/bookings/{bookingId}", 1L)
+                        .header("X-Sharer-User-Id", 1L)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+
+        booking.setStatus(StatusBooking.APPROVED);
+
+        mockMvc.perform(get("/bookings/{bookingId}", 1L)
+                        .header("X-Sharer-User-Id", 1L)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("APPROVED")));
+    }
+
     @Test
     void getAllByUserTest() throws Exception {
         mockMvc.perform(get("/bookings")
@@ -119,4 +186,56 @@ class BookingControllerTest {
         verify(bookingService, times(1))
                 .getAllByOwner(1L, "ALL", PageRequest.of(1, 1));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getAllByUserWithCursorTest() throws Exception {
+        BookingShortDto booking = new BookingShortDto(3L, LocalDateTime.of(2030, 1, 1, 12, 0),
+                LocalDateTime.of(2030, 1, 2, 12, 0), StatusBooking.WAITING, 1L, "itemName", 2L);
+
+        when(bookingService.getAllByBookerAfter(anyLong(), any(), any(BookingCursor.class), anyInt()))
+                .thenReturn(List.of(booking));
+
+        mockMvc.perform(get("/bookings")
+                        .param("state", "ALL")
+                        .param("size", "1")
+                        .param("after", "")
+                        .header("X-Sharer-User-Id", 1L)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", BookingCursor.of(booking).encode()))
+                .andExpect(jsonPath("$[0].item.name", is("itemName")))
+                .andExpect(jsonPath("$[0].booker.id", is(2L), Long.class))
+                .andExpect(jsonPath("$[0].item.owner").doesNotExist())
+                .andExpect(jsonPath("$[0].booker.email").doesNotExist());
+        verify(bookingService, times(1)).getAllByBookerAfter(eq(1L), eq("ALL"), eq(BookingCursor.FIRST), eq(1));
+        verify(bookingService, never()).getAllByBooker(any(), any(), any());
+    }
+
+    @Test
+    void getAllForOwnerWithCursorLastPageTest() throws Exception {
+        String after = new BookingCursor(LocalDateTime.of(2030, 1, 1, 12, 0), 3L).encode();
+
+        when(bookingService.getAllByOwnerAfter(anyLong(), any(), any(BookingCursor.class), anyInt()))
+                .thenReturn(List.of());
+
+        mockMvc.perform(get("/bookings/owner")
+                        .param("state", "ALL")
+                        .param("size", "10")
+                        .param("after", after)
+                        .header("X-Sharer-User-Id", 1L)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+        verify(bookingService, times(1)).getAllByOwnerAfter(eq(1L), eq("ALL"),
+                argThat(cursor -> cursor.getId().equals(3L)), eq(10));
+    }
+
+    @Test
+    void getAllByUserWithIncorrectCursorTest() throws Exception {
+        mockMvc.perform(get("/bookings")
+                        .param("after", "not-a-cursor")
+                        .header("X-Sharer-User-Id", 1L)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -1,27 +1,37 @@
 package ru.practicum.shareit.booking.repository;
 
+import org.hibernate.Session;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import ru.practicum.shareit.booking.dto.BookingCursor;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
 import ru.practicum.shareit.booking.model.StatusBooking;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "ru.practicum.shareit.booking.repository.SqlCaptor")
 class BookingRepositoryTest {
 
     @Autowired
@@ -33,6 +43,11 @@ class BookingRepositoryTest {
     @Autowired
     private ItemRepository itemRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private static final List<StatusBooking> HIDDEN_STATUSES = List.of(StatusBooking.REJECTED, StatusBooking.CANCELED);
+
     private final Pageable pageable = PageRequest.of(0, 5, Sort.by("start").descending());
     private User booker;
     private User owner;
@@ -67,6 +82,7 @@ class BookingRepositoryTest {
         booking.setEnd(LocalDateTime.now().minusHours(1));
         booking.setItem(item);
         booking.setBooker(booker);
+        booking.setOwnerId(owner.getId());
         booking.setStatus(StatusBooking.WAITING);
         bookingRepository.save(booking);
 
@@ -75,6 +91,7 @@ class BookingRepositoryTest {
         booking2.setEnd(LocalDateTime.now().plusHours(2));
         booking2.setItem(item);
         booking2.setBooker(booker);
+        booking2.setOwnerId(owner.getId());
         booking2.setStatus(StatusBooking.WAITING);
         bookingRepository.save(booking2);
 
@@ -83,6 +100,7 @@ class BookingRepositoryTest {
         booking3.setEnd(LocalDateTime.now().plusHours(1));
         booking3.setItem(item);
         booking3.setBooker(booker);
+        booking3.setOwnerId(owner.getId());
         booking3.setStatus(StatusBooking.WAITING);
         bookingRepository.save(booking3);
 
@@ -91,6 +109,7 @@ class BookingRepositoryTest {
         booking4.setEnd(LocalDateTime.now());
         booking4.setItem(item);
         booking4.setBooker(booker);
+        booking4.setOwnerId(owner.getId());
         booking4.setStatus(StatusBooking.WAITING);
         bookingRepository.save(booking4);
 
@@ -99,77 +118,144 @@ class BookingRepositoryTest {
         booking5.setEnd(LocalDateTime.now());
         booking5.setItem(item);
         booking5.setBooker(booker);
+        booking5.setOwnerId(owner.getId());
         booking5.setStatus(StatusBooking.REJECTED);
         bookingRepository.save(booking5);
     }
 
     @Test
     void testFindAllByBookerIdOrderByStartDesc() {
-        List<Booking> bookings = bookingRepository.findAllByBookerIdOrderByStartDesc(booker.getId(), pageable);
+        List<BookingShortDto> bookings = bookingRepository.findAllByBookerIdOrderByStartDesc(booker.getId(), pageable);
         assertEquals(5, bookings.size());
     }
 
     @Test
     void testFindAllByBookerIdAndStatusOrderByStartDesc() {
-        List<Booking> bookings = bookingRepository.findAllByBookerIdAndStatusOrderByStartDesc(booker.getId(),
+        List<BookingShortDto> bookings = bookingRepository.findAllByBookerIdAndStatusOrderByStartDesc(booker.getId(),
                 StatusBooking.WAITING, pageable);
         assertEquals(4, bookings.size());
     }
 
     @Test
-    void testFindAllByBookerIdAndEndBeforeOrderByStartDesc() {
-        List<Booking> bookings = bookingRepository.findAllByBookerIdAndEndBeforeOrderByStartDesc(booker.getId(),
-                LocalDateTime.now(), pageable);
+    void testFindAllByBookerIdAndPhasePastOrderByStartDesc() {
+        List<BookingShortDto> bookings = bookingRepository.findAllByBookerIdAndPhaseOrderByStartDesc(booker.getId(),
+                BookingPhase.PAST, pageable);
         assertEquals(3, bookings.size());
     }
 
     @Test
-    void testFindAllByBookerIdAndStartAfterOrderByStartDesc() {
-        List<Booking> bookings = bookingRepository.findAllByBookerIdAndStartAfterOrderByStartDesc(booker.getId(),
-                LocalDateTime.now(), pageable);
+    void testFindAllByBookerIdAndPhaseFutureOrderByStartDesc() {
+        List<BookingShortDto> bookings = bookingRepository.findAllByBookerIdAndPhaseOrderByStartDesc(booker.getId(),
+                BookingPhase.FUTURE, pageable);
         assertEquals(1, bookings.size());
     }
 
     @Test
-    void testFindCurrentBookerBookings() {
-        List<Booking> bookings = bookingRepository.findCurrentBookerBookings(booker.getId(), LocalDateTime.now(), pageable);
+    void testFindAllByBookerIdAndPhaseCurrentOrderByStartDesc() {
+        List<BookingShortDto> bookings = bookingRepository.findAllByBookerIdAndPhaseOrderByStartDesc(booker.getId(),
+                BookingPhase.CURRENT, pageable);
         assertEquals(1, bookings.size());
     }
 
     @Test
     void testFindAllByItemOwnerIdOrderByStartDesc() {
-        List<Booking> bookings = bookingRepository.findAllByItemOwnerIdOrderByStartDesc(owner.getId(), pageable);
+        List<BookingShortDto> bookings = bookingRepository.findAllByOwnerIdOrderByStartDesc(owner.getId(), pageable);
         assertEquals(5, bookings.size());
     }
 
     @Test
     void testFindAllByItemOwnerIdAndStatusOrderByStartDesc() {
-        List<Booking> bookings = bookingRepository.findAllByItemOwnerIdAndStatusOrderByStartDesc(owner.getId(),
+        List<BookingShortDto> bookings = bookingRepository.findAllByOwnerIdAndStatusOrderByStartDesc(owner.getId(),
                 StatusBooking.WAITING, pageable);
         assertEquals(4, bookings.size());
     }
 
     @Test
-    void testFindAllByItemOwnerIdAndEndBeforeOrderByStartDesc() {
-        List<Booking> bookings = bookingRepository.findAllByItemOwnerIdAndEndBeforeOrderByStartDesc(owner.getId(),
-                LocalDateTime.now(), pageable);
+    void testFindAllByItemOwnerIdAndPhasePastOrderByStartDesc() {
+        List<BookingShortDto> bookings = bookingRepository.findAllByOwnerIdAndPhaseOrderByStartDesc(owner.getId(),
+                BookingPhase.PAST, pageable);
         assertEquals(3, bookings.size());
     }
 
     @Test
-    void testFindAllByItemOwnerIdAndStartAfterOrderByStartDesc() {
-        List<Booking> bookings = bookingRepository.findAllByItemOwnerIdAndStartAfterOrderByStartDesc(owner.getId(),
-                LocalDateTime.now(), pageable);
+    void testFindAllByItemOwnerIdAndPhaseFutureOrderByStartDesc() {
+        List<BookingShortDto> bookings = bookingRepository.findAllByOwnerIdAndPhaseOrderByStartDesc(owner.getId(),
+                BookingPhase.FUTURE, pageable);
         assertEquals(1, bookings.size());
     }
 
     @Test
-    void testFindCurrentOwnerBookings() {
-        List<Booking> bookings = bookingRepository.findCurrentOwnerBookings(owner.getId(),
-                LocalDateTime.now(), pageable);
+    void testFindAllByItemOwnerIdAndPhaseCurrentOrderByStartDesc() {
+        List<BookingShortDto> bookings = bookingRepository.findAllByOwnerIdAndPhaseOrderByStartDesc(owner.getId(),
+                BookingPhase.CURRENT, pageable);
         assertEquals(1, bookings.size());
     }
 
+    @Test
+    void testFindBookerBookingsAfterWalksAllPages() {
+        //курсор строится по значениям из базы, а не по объектам в контексте
+        entityManager.flush();
+        entityManager.clear();
+        Pageable page = PageRequest.of(0, 2);
+        List<BookingShortDto> first = bookingRepository.findBookerBookingsAfter(booker.getId(),
+                BookingCursor.FIRST.getStart(), BookingCursor.FIRST.getId(), page);
+        assertEquals(2, first.size());
+
+        BookingShortDto last = first.get(1);
+        List<BookingShortDto> second = bookingRepository.findBookerBookingsAfter(booker.getId(), last.getStart(),
+                last.getId(), page);
+        assertEquals(2, second.size());
+
+        last = second.get(1);
+        List<BookingShortDto> third = bookingRepository.findBookerBookingsAfter(booker.getId(), last.getStart(),
+                last.getId(), page);
+        assertEquals(1, third.size());
+
+        List<Long> ids = new ArrayList<>();
+        first.forEach(b -> ids.add(b.getId()));
+        second.forEach(b -> ids.add(b.getId()));
+        third.forEach(b -> ids.add(b.getId()));
+        assertEquals(5, ids.stream().distinct().count());
+    }
+
+    @Test
+    void testFindOwnerBookingsByStatusAfter() {
+        entityManager.flush();
+        entityManager.clear();
+        List<BookingShortDto> bookings = bookingRepository.findOwnerBookingsByStatusAfter(owner.getId(), StatusBooking.WAITING,
+                BookingCursor.FIRST.getStart(), BookingCursor.FIRST.getId(), PageRequest.of(0, 10));
+        assertEquals(4, bookings.size());
+
+        BookingShortDto first = bookings.get(0);
+        bookings = bookingRepository.findOwnerBookingsByStatusAfter(owner.getId(), StatusBooking.WAITING,
+                first.getStart(), first.getId(), PageRequest.of(0, 10));
+        assertEquals(3, bookings.size());
+    }
+
+    @Test
+    void testFindBookingsByPhaseAfter() {
+        assertEquals(1, bookingRepository.findOwnerBookingsByPhaseAfter(owner.getId(), BookingPhase.CURRENT,
+                BookingCursor.FIRST.getStart(), BookingCursor.FIRST.getId(), PageRequest.of(0, 5)).size());
+        assertEquals(3, bookingRepository.findOwnerBookingsByPhaseAfter(owner.getId(), BookingPhase.PAST,
+                BookingCursor.FIRST.getStart(), BookingCursor.FIRST.getId(), PageRequest.of(0, 5)).size());
+        assertEquals(1, bookingRepository.findBookerBookingsByPhaseAfter(booker.getId(), BookingPhase.FUTURE,
+                BookingCursor.FIRST.getStart(), BookingCursor.FIRST.getId(), PageRequest.of(0, 5)).size());
+    }
+
+    @Test
+    void testMarkPastAndMarkCurrentAdvancePhase() {
+        entityManager.flush();
+        entityManager.clear();
+        //через три часа текущее и будущее бронирования уже в прошлом, через полтора - будущее стало текущим
+        assertEquals(1, bookingRepository.markCurrent(LocalDateTime.now().plusMinutes(90)));
+        assertEquals(2, bookingRepository.markPast(LocalDateTime.now().plusHours(3)));
+        assertEquals(0, bookingRepository.markCurrent(LocalDateTime.now().plusHours(3)));
+        entityManager.clear();
+
+        assertEquals(5, bookingRepository.findAllByBookerIdAndPhaseOrderByStartDesc(booker.getId(),
+                BookingPhase.PAST, PageRequest.of(0, 10)).size());
+    }
+
     @Test
     void testCountAllByItemIdAndBookerIdAndEndBefore() {
         Long count = bookingRepository.countAllByItemIdAndBookerIdAndEndBefore(item.getId(), booker.getId(),
@@ -178,23 +264,90 @@ class BookingRepositoryTest {
     }
 
     @Test
-    void testFindPastOwnerBookings() {
-        List<Booking> bookings = bookingRepository.findPastOwnerBookings(item.getId(), owner.getId(), LocalDateTime.now());
-        assertEquals(3, bookings.size());
+    void testFindFirstPastOwnerBooking() {
+        Optional<Booking> booking = bookingRepository.findFirstByItemIdAndOwnerIdAndStartBeforeAndStatusNotInOrderByEndDesc(
+                item.getId(), owner.getId(), LocalDateTime.now(), HIDDEN_STATUSES);
+        assertTrue(booking.isPresent());
+        assertTrue(booking.get().getEnd().isAfter(LocalDateTime.now()));
+        assertNotEquals(StatusBooking.REJECTED, booking.get().getStatus());
     }
 
     @Test
-    void testFindFutureOwnerBookings() {
-        List<Booking> bookings = bookingRepository.findFutureOwnerBookings(item.getId(), owner.getId(), LocalDateTime.now());
-        assertEquals(1, bookings.size());
+    void testFindFirstFutureOwnerBooking() {
+        Optional<Booking> booking = bookingRepository.findFirstByItemIdAndOwnerIdAndStartAfterAndStatusNotInOrderByStartAsc(
+                item.getId(), owner.getId(), LocalDateTime.now(), HIDDEN_STATUSES);
+        assertTrue(booking.isPresent());
+        assertTrue(booking.get().getStart().isAfter(LocalDateTime.now()));
     }
 
     @Test
-    void findByItemIdInAndStatusNot() {
-        List<Booking> bookings = bookingRepository.findByItemIdInAndStatusNot(itemsIds, StatusBooking.REJECTED);
+    void testFindFirstOwnerBookingForAnotherOwner() {
+        Optional<Booking> booking = bookingRepository.findFirstByItemIdAndOwnerIdAndStartAfterAndStatusNotInOrderByStartAsc(
+                item.getId(), booker.getId(), LocalDateTime.now(), HIDDEN_STATUSES);
+        assertTrue(booking.isEmpty());
+    }
+
+    @Test
+    void findByItemIdInAndStatusNotIn() {
+        List<Booking> bookings = bookingRepository.findByItemIdInAndStatusNotIn(itemsIds, HIDDEN_STATUSES);
         assertEquals(4, bookings.size());
     }
 
+    @Test
+    void testBookerQueriesDoNotScanBookings() {
+        Pageable page = PageRequest.of(0, 5);
+        assertNoTableScan(() -> bookingRepository.findAllByBookerIdOrderByStartDesc(booker.getId(), page));
+        assertNoTableScan(() -> bookingRepository.findAllByBookerIdAndStatusOrderByStartDesc(booker.getId(),
+                StatusBooking.WAITING, page));
+        assertNoTableScan(() -> bookingRepository.findAllByBookerIdAndPhaseOrderByStartDesc(booker.getId(),
+                BookingPhase.PAST, page));
+        assertNoTableScan(() -> bookingRepository.findBookerBookingsByPhaseAfter(booker.getId(), BookingPhase.PAST,
+                BookingCursor.FIRST.getStart(), BookingCursor.FIRST.getId(), page));
+        assertNoTableScan(() -> bookingRepository.countAllByItemIdAndBookerIdAndEndBefore(item.getId(),
+                booker.getId(), LocalDateTime.now()));
+    }
+
+    @Test
+    void testItemAndOwnerQueriesDoNotScanBookings() {
+        Pageable page = PageRequest.of(0, 5);
+        LocalDateTime now = LocalDateTime.now();
+        assertNoTableScan(() -> bookingRepository.findByItemIdInAndStatusNotIn(itemsIds, HIDDEN_STATUSES));
+        assertNoTableScan(() -> bookingRepository.findFirstByItemIdAndOwnerIdAndStartAfterAndStatusNotInOrderByStartAsc(
+                item.getId(), owner.getId(), now, HIDDEN_STATUSES));
+        assertNoTableScan(() -> bookingRepository.findAllByOwnerIdOrderByStartDesc(owner.getId(), page));
+        assertNoTableScan(() -> bookingRepository.findAllByOwnerIdAndStatusOrderByStartDesc(owner.getId(),
+                StatusBooking.WAITING, page));
+        assertNoTableScan(() -> bookingRepository.findAllByOwnerIdAndPhaseOrderByStartDesc(owner.getId(),
+                BookingPhase.CURRENT, page));
+    }
+
+    @Test
+    void testSweeperQueriesDoNotScanBookings() {
+        LocalDateTime now = LocalDateTime.now();
+        assertNoTableScan(() -> bookingRepository.markCurrent(now));
+        assertNoTableScan(() -> bookingRepository.claimStarted(StatusBooking.WAITING, now, PageRequest.of(0, 5)));
+    }
+
+    //План строится для SQL, который Hibernate сгенерировал для метода репозитория, параметры подставляются заново
+    private void assertNoTableScan(Runnable query) {
+        SqlCaptor.clear();
+        query.run();
+        String sql = SqlCaptor.last();
+        String plan = entityManager.getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("explain " + sql)) {
+                int parameters = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameters; i++) {
+                    statement.setNull(i, Types.NULL);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    return resultSet.getString(1);
+                }
+            }
+        });
+        assertFalse(plan.contains("tableScan"), plan);
+    }
+
     @AfterEach
     public void tearDown() {
         bookingRepository.deleteAll();
@@ -1,39 +1,93 @@
 package ru.practicum.shareit.booking.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.StatusBooking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.exception.ConflictException;
+import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.comment.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.service.ItemService;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
+import javax.persistence.EntityManagerFactory;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
 
-@SpringBootTest
+@Slf4j
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 class BookingServiceImplIntegrationTest {
 
     @Autowired
     private BookingService bookingService;
-
     @Autowired
+    private ItemService itemService;
+
+    @SpyBean
     private BookingRepository bookingRepository;
     @Autowired
     private ItemRepository itemRepository;
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private BookingPhaseSweeper phaseSweeper;
+
+    private static final int THREADS = 8;
+    private static final int STRESS_BOOKINGS = 50;
+    private static final int CALLS_PER_BOOKING = 4;
 
     private final Pageable pageable = PageRequest.of(0, 5, Sort.by("start").descending());
     private User owner;
@@ -88,6 +142,8 @@ class BookingServiceImplIntegrationTest {
     @Test
     @DirtiesContext
     void createBookingTest() {
+        bookingDto.setStart(booking.getEnd().plusMinutes(1));
+        bookingDto.setEnd(booking.getEnd().plusHours(1));
         BookingDto result = bookingService.createBooking(bookingDto, owner.getId());
         assertNotNull(result);
     }
@@ -109,14 +165,326 @@ class BookingServiceImplIntegrationTest {
     @Test
     @DirtiesContext
     void getAllByBookerTest() {
-        List<BookingDto> result = bookingService.getAllByBooker(booker.getId(), "ALL", pageable);
+        List<BookingShortDto> result = bookingService.getAllByBooker(booker.getId(), "ALL", pageable);
         assertNotNull(result);
     }
 
     @Test
     @DirtiesContext
     void getAllByOwnerTest() {
-        List<BookingDto> result = bookingService.getAllByOwner(booker.getId(), "ALL", pageable);
+        List<BookingShortDto> result = bookingService.getAllByOwner(booker.getId(), "ALL", pageable);
         assertNotNull(result);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DirtiesContext
+    void getAllByBookerQueryCountTest() {
+        //бронирования разных вещей разных владельцев и бронирования другого пользователя
+        for (int i = 0; i < 3; i++) {
+            User itemOwner = new User();
+            itemOwner.setName("itemOwner" + i);
+            itemOwner.setEmail("itemOwner" + i + "@mail.com");
+            userRepository.save(itemOwner);
+
+            Item ownedItem = new Item();
+            ownedItem.setName("ownedItem" + i);
+            ownedItem.setDescription("ownedItemDescription");
+            ownedItem.setOwner(itemOwner);
+            ownedItem.setAvailable(true);
+            itemRepository.save(ownedItem);
+
+            for (User user : List.of(booker, booker, owner)) {
+                Booking other = new Booking();
+                other.setStart(LocalDateTime.now().plusDays(10 + i));
+                other.setEnd(LocalDateTime.now().plusDays(11 + i));
+                other.setItem(ownedItem);
+                other.setBooker(user);
+                other.setOwnerId(itemOwner.getId());
+                other.setStatus(StatusBooking.WAITING);
+                bookingRepository.save(other);
+            }
+        }
+        Pageable allRows = PageRequest.of(0, 20);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        //первый вызов заполняет кэш проверки пользователя, дальше считается только выборка списка
+        bookingService.getAllByBooker(booker.getId(), "ALL", allRows);
+        statistics.clear();
+
+        List<BookingShortDto> result = bookingService.getAllByBooker(booker.getId(), "ALL", allRows);
+
+        assertEquals(7, result.size());
+        assertEquals(4, result.stream().map(b -> b.getItem().getId()).distinct().count());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DirtiesContext
+    void approvedBookingsStatementCountTest() {
+        List<Long> singleIds = saveWaitingBookings(20, 0);
+        List<Long> batchIds = saveWaitingBookings(20, 100);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        singleIds.forEach(id -> bookingService.approvedBooking(booker.getId(), id, true));
+        long singleStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        List<BookingBatchResultDto> result = bookingService.approvedBookings(booker.getId(), batchIds, true);
+        long batchStatements = statistics.getPrepareStatementCount();
+
+        assertEquals(20, result.size());
+        assertTrue(result.stream().allMatch(r -> r.getStatus() == StatusBooking.APPROVED));
+        assertTrue(bookingRepository.findAllById(batchIds).stream()
+                .allMatch(b -> b.getStatus() == StatusBooking.APPROVED));
+        //проверка пользователя, выборка бронирований, блокировка вещей, проверка пересечений и один UPDATE
+        assertTrue(batchStatements <= 5);
+        assertTrue(batchStatements < singleStatements);
+    }
+
+    //Время бронирования сдвигается в базе мимо сущности, как если бы прошли часы: до обхода списки
+    //видят прежнюю фазу, после обхода - новую. Право на отзыв проверяется по времени окончания и от обхода не зависит
+    @Test
+    @DirtiesContext
+    void sweepMovesBookingAcrossPhasesTest() {
+        Long id = saveWaitingBookings(1, 500).get(0);
+        LocalDateTime now = LocalDateTime.now();
+
+        moveBooking(id, now.minusMinutes(1), now.plusHours(1));
+        assertEquals(List.of(id), listIds(owner.getId(), "FUTURE"));
+        assertTrue(listIds(owner.getId(), "CURRENT").isEmpty());
+
+        phaseSweeper.sweep();
+        assertTrue(listIds(owner.getId(), "FUTURE").isEmpty());
+        assertEquals(List.of(id), listIds(owner.getId(), "CURRENT"));
+
+        CommentDto commentDto = new CommentDto(null, "comment", null, null, null);
+        assertThrows(ValidationException.class,
+                () -> itemService.createComment(commentDto, item.getId(), owner.getId()));
+
+        moveBooking(id, now.minusHours(2), now.minusMinutes(1));
+        assertEquals(List.of(id), listIds(owner.getId(), "CURRENT"));
+        assertNotNull(itemService.createComment(commentDto, item.getId(), owner.getId()));
+
+        phaseSweeper.sweep();
+        assertTrue(listIds(owner.getId(), "CURRENT").isEmpty());
+        assertEquals(List.of(id), listIds(owner.getId(), "PAST"));
+    }
+
+    //Одно из бронирований пакета подтверждается отдельным запросом между чтением пакета и UPDATE
+    @Test
+    @DirtiesContext
+    void approvedBookingsChangedAfterReadTest() throws Exception {
+        List<Long> ids = saveWaitingBookings(2, 400);
+        AtomicBoolean interfered = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (interfered.compareAndSet(false, true)) {
+                ExecutorService executor = Executors.newSingleThreadExecutor();
+                try {
+                    executor.submit(() -> bookingService.approvedBooking(booker.getId(), ids.get(0), true)).get();
+                } finally {
+                    executor.shutdown();
+                }
+            }
+            //Репозиторий - JDK-прокси, поэтому шпион делегирует вызовы через ответ по умолчанию
+            return mockingDetails(bookingRepository).getMockCreationSettings().getDefaultAnswer().answer(invocation);
+        }).when(bookingRepository).updateStatusByOwner(any(), anyLong(), any(), any());
+
+        List<BookingBatchResultDto> result = bookingService.approvedBookings(booker.getId(), ids, false);
+
+        assertEquals("Бронирование уже подтверждено", result.get(0).getError());
+        assertEquals(StatusBooking.REJECTED, result.get(1).getStatus());
+        assertEquals(StatusBooking.APPROVED, bookingRepository.findById(ids.get(0)).orElseThrow().getStatus());
+        assertEquals(StatusBooking.REJECTED, bookingRepository.findById(ids.get(1)).orElseThrow().getStatus());
+    }
+
+    @Test
+    @DirtiesContext
+    void createBookingConcurrentOverlapTest() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(200);
+        List<Callable<BookingDto>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            long shift = i;
+            tasks.add(() -> bookingService.createBooking(new BookingDto(null, start.plusMinutes(shift),
+                    start.plusHours(2), item.getId(), null, null, null, null), owner.getId()));
+        }
+
+        List<Throwable> errors = runConcurrently(tasks);
+
+        assertEquals(THREADS - 1, errors.size());
+        assertTrue(errors.stream().allMatch(e -> e instanceof ConflictException));
+        assertEquals(1, bookingRepository.findAll().stream()
+                .filter(b -> b.getStart().isAfter(start.minusMinutes(1)))
+                .count());
+    }
+
+    @Test
+    @DirtiesContext
+    void approvedBookingOverlapWaitingTest() {
+        LocalDateTime start = LocalDateTime.now().plusDays(310);
+        saveBooking(start, start.plusHours(2), StatusBooking.WAITING);
+        Booking rejected = saveBooking(start.plusHours(1), start.plusHours(3), StatusBooking.REJECTED);
+
+        assertThrows(ConflictException.class,
+                () -> bookingService.approvedBooking(booker.getId(), rejected.getId(), true));
+        assertEquals(StatusBooking.REJECTED, bookingRepository.findById(rejected.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    @DirtiesContext
+    void approvedBookingConcurrentOverlapTest() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.now().plusDays(300);
+        //Пересекаться между собой могут только отклоненные бронирования, их владелец и подтверждает повторно
+        for (int i = 0; i < THREADS; i++) {
+            ids.add(saveBooking(start.plusMinutes(i), start.plusHours(2), StatusBooking.REJECTED).getId());
+        }
+        List<Callable<BookingDto>> tasks = new ArrayList<>();
+        for (Long id : ids) {
+            tasks.add(() -> bookingService.approvedBooking(booker.getId(), id, true));
+        }
+
+        List<Throwable> errors = runConcurrently(tasks);
+
+        assertEquals(THREADS - 1, errors.size());
+        assertTrue(errors.stream().allMatch(e -> e instanceof ConflictException));
+        assertEquals(1, bookingRepository.findAllById(ids).stream()
+                .filter(b -> b.getStatus() == StatusBooking.APPROVED)
+                .count());
+    }
+
+    @Test
+    @DirtiesContext
+    void sweepExpiresStartedWaitingBookingsTest() {
+        List<Long> started = saveWaitingBookings(5, -10);
+        Long upcoming = saveWaitingBookings(1, 10).get(0);
+        assertEquals(started.get(4), itemService.getItem(booker.getId(), item.getId()).getLastBooking().getId());
+        BookingExpirySweeper sweeper = new BookingExpirySweeper(bookingRepository, transactionManager,
+                meterRegistry, 2);
+
+        assertEquals(5, sweeper.sweep());
+
+        assertTrue(bookingRepository.findAllById(started).stream()
+                .allMatch(b -> b.getStatus() == StatusBooking.CANCELED));
+        assertEquals(StatusBooking.WAITING, bookingRepository.findById(booking.getId()).orElseThrow().getStatus());
+        //пакеты по 2, 2 и 1 бронированию
+        assertEquals(3, meterRegistry.summary("shareit.booking.expiry.batch.size").count());
+        assertEquals(5, meterRegistry.timer("shareit.booking.expiry.lag").count());
+        assertThrows(ValidationException.class,
+                () -> bookingService.approvedBooking(booker.getId(), started.get(0), true));
+        assertEquals(0, sweeper.sweep());
+
+        //отмененные бронирования не показываются владельцу как последнее, следующим остается ожидающее.
+        //Список вещей выбирает бронирования по вещи, поэтому там следующее - бронирование из setUp
+        ItemDto itemDto = itemService.getItem(booker.getId(), item.getId());
+        assertNull(itemDto.getLastBooking());
+        assertEquals(upcoming, itemDto.getNextBooking().getId());
+        ItemDto listed = itemService.getAllItemsByUserId(booker.getId(), PageRequest.of(0, 10)).get(0);
+        assertNull(listed.getLastBooking());
+        assertEquals(booking.getId(), listed.getNextBooking().getId());
+    }
+
+    //Владелец одновременно подтверждает и отклоняет бронирования одной вещи: каждое бронирование
+    //получает по CALLS_PER_BOOKING вызовов. Без версий оба решения фиксируются и одно из них теряется
+    @Test
+    @DirtiesContext
+    void approvedBookingContentionStressTest() throws Exception {
+        List<Long> ids = saveWaitingBookings(STRESS_BOOKINGS, 400);
+        Map<Long, AtomicInteger> approvals = new ConcurrentHashMap<>();
+        List<Callable<BookingDto>> tasks = new ArrayList<>();
+        for (Long id : ids) {
+            approvals.put(id, new AtomicInteger());
+            for (int i = 0; i < CALLS_PER_BOOKING; i++) {
+                boolean approved = i % 2 == 0;
+                tasks.add(() -> {
+                    BookingDto result = bookingService.approvedBooking(booker.getId(), id, approved);
+                    if (result.getStatus() == StatusBooking.APPROVED) {
+                        approvals.get(id).incrementAndGet();
+                    }
+                    return result;
+                });
+            }
+        }
+        Counter conflicts = meterRegistry.counter("shareit.optimistic.conflicts");
+        double conflictsBefore = conflicts.count();
+
+        long started = System.nanoTime();
+        List<Throwable> errors = runConcurrently(tasks, THREADS);
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        double conflictCount = conflicts.count() - conflictsBefore;
+        log.info("{} вызовов в {} потоков за {} с: {} вызовов/с, конфликтов версий {} ({} на вызов), " +
+                        "отказов после повторов {}", tasks.size(), THREADS, String.format("%.2f", seconds),
+                String.format("%.0f", tasks.size() / seconds), (long) conflictCount,
+                String.format("%.3f", conflictCount / tasks.size()),
+                errors.stream().filter(e -> e instanceof ConflictException).count());
+
+        assertTrue(errors.stream().allMatch(e -> e instanceof ValidationException || e instanceof ConflictException));
+        for (Booking result : bookingRepository.findAllById(ids)) {
+            int approved = approvals.get(result.getId()).get();
+            assertTrue(approved <= 1);
+            assertEquals(approved == 1, result.getStatus() == StatusBooking.APPROVED);
+            assertTrue(result.getStatus() == StatusBooking.APPROVED || result.getStatus() == StatusBooking.REJECTED);
+        }
+    }
+
+    private <T> List<Throwable> runConcurrently(List<Callable<T>> tasks) throws Exception {
+        return runConcurrently(tasks, tasks.size());
+    }
+
+    //Все задачи стартуют одновременно; возвращаются исключения неуспешных задач
+    private <T> List<Throwable> runConcurrently(List<Callable<T>> tasks, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<Throwable> errors = new ArrayList<>();
+            for (Future<T> future : futures) {
+                try {
+                    future.get(30, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    errors.add(e.getCause());
+                }
+            }
+            return errors;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void moveBooking(Long id, LocalDateTime start, LocalDateTime end) {
+        jdbcTemplate.update("update bookings set start_date = ?, end_date = ? where id = ?", start, end, id);
+    }
+
+    private List<Long> listIds(Long bookerId, String state) {
+        return bookingService.getAllByBooker(bookerId, state, pageable).stream()
+                .map(BookingShortDto::getId)
+                .collect(Collectors.toList());
+    }
+
+    private Booking saveBooking(LocalDateTime start, LocalDateTime end, StatusBooking status) {
+        Booking booking = new Booking();
+        booking.setStart(start);
+        booking.setEnd(end);
+        booking.setItem(item);
+        booking.setBooker(owner);
+        booking.setOwnerId(booker.getId());
+        booking.setStatus(status);
+        return bookingRepository.save(booking);
+    }
+
+    private List<Long> saveWaitingBookings(int count, int firstDay) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(saveBooking(LocalDateTime.now().plusDays(firstDay + i + 1),
+                    LocalDateTime.now().plusDays(firstDay + i + 2), StatusBooking.WAITING).getId());
+        }
+        return ids;
+    }
+}
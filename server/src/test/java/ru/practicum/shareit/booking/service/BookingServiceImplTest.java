@@ -1,5 +1,6 @@
 package ru.practicum.shareit.booking.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -8,25 +9,36 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingCursor;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
 import ru.practicum.shareit.booking.model.StatusBooking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.exception.ConflictException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.utils.CheckExistence;
+import ru.practicum.shareit.utils.OptimisticRetry;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -47,12 +59,15 @@ class BookingServiceImplTest {
     private Item item;
     private Booking booking;
     private BookingDto bookingDto;
+    private BookingShortDto bookingShortDto;
     private User owner;
     private User booker;
 
     @BeforeEach
     void setUp() {
-        bookingService = new BookingServiceImpl(bookingRepository, userRepository, itemRepository, new BookingMapper());
+        bookingService = new BookingServiceImpl(bookingRepository, userRepository, itemRepository, new BookingMapper(),
+                new CheckExistence(userRepository, itemRepository, 100, Duration.ofMinutes(1)),
+                new OptimisticRetry(mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 1, Duration.ZERO));
 
         owner = new User();
         owner.setId(1L);
@@ -89,6 +104,16 @@ class BookingServiceImplTest {
                 booking.getBooker(),
                 booking.getStatus()
         );
+
+        bookingShortDto = new BookingShortDto(
+                booking.getId(),
+                booking.getStart(),
+                booking.getEnd(),
+                booking.getStatus(),
+                item.getId(),
+                item.getName(),
+                booker.getId()
+        );
     }
 
     @Test
@@ -189,12 +214,12 @@ class BookingServiceImplTest {
 
         bookingService.createBooking(bookingDto, booker.getId());
 
-        verify(bookingRepository).save(any(Booking.class));
+        verify(bookingRepository).save(argThat(saved -> owner.getId().equals(saved.getOwnerId())));
     }
 
     @Test
     void approvedBookingTestIncorrectUser() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(userRepository.existsById(anyLong())).thenReturn(false);
 
         assertThrows(
                 NotFoundException.class,
@@ -204,7 +229,7 @@ class BookingServiceImplTest {
 
     @Test
     void approvedBookingTestIncorrectBooking() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
         when(bookingRepository.findById(anyLong())).thenReturn(Optional.empty());
 
         assertThrows(
@@ -215,7 +240,7 @@ class BookingServiceImplTest {
 
     @Test
     void approvedBookingTestIncorrectOwner() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
         when(bookingRepository.findById(anyLong())).thenReturn(Optional.of(booking));
 
         assertThrows(
@@ -226,7 +251,7 @@ class BookingServiceImplTest {
 
     @Test
     void approvedBookingTestIncorrectStatus() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
         when(bookingRepository.findById(anyLong())).thenReturn(Optional.of(booking));
 
         booking.setStatus(StatusBooking.APPROVED);
@@ -238,9 +263,160 @@ class BookingServiceImplTest {
         booking.setStatus(StatusBooking.WAITING);
     }
 
+    @Test
+    void approvedBookingTestCanceled() {
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(bookingRepository.findById(anyLong())).thenReturn(Optional.of(booking));
+
+        booking.setStatus(StatusBooking.CANCELED);
+
+        assertThrows(
+                ValidationException.class,
+                () -> bookingService.approvedBooking(owner.getId(), booking.getId(), true)
+        );
+        verify(bookingRepository, never()).save(any(Booking.class));
+        booking.setStatus(StatusBooking.WAITING);
+    }
+
+    @Test
+    void createBookingTestOverlap() {
+        bookingDto.setItemId(item.getId());
+        when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(bookingRepository.existsOverlapping(eq(item.getId()), any(), any(), anyList())).thenReturn(true);
+
+        assertThrows(
+                ConflictException.class,
+                () -> bookingService.createBooking(bookingDto, booker.getId())
+        );
+        verify(itemRepository, times(1)).lockForBooking(item);
+        verify(bookingRepository, never()).save(any(Booking.class));
+    }
+
+    @Test
+    void approvedBookingTestOverlap() {
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(bookingRepository.findById(anyLong())).thenReturn(Optional.of(booking));
+        when(bookingRepository.existsOverlappingExcept(item.getId(), booking.getId(), booking.getStart(),
+                booking.getEnd(), List.of(StatusBooking.WAITING, StatusBooking.APPROVED))).thenReturn(true);
+
+        assertThrows(
+                ConflictException.class,
+                () -> bookingService.approvedBooking(owner.getId(), booking.getId(), true)
+        );
+        verify(bookingRepository, never()).save(any(Booking.class));
+    }
+
+    @Test
+    void approvedBookingTestRejectSkipsOverlapCheck() {
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(bookingRepository.findById(anyLong())).thenReturn(Optional.of(booking));
+        when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
+
+        bookingService.approvedBooking(owner.getId(), booking.getId(), false);
+
+        verify(itemRepository, never()).lockForBooking(any(Item.class));
+        verify(bookingRepository, never()).existsOverlappingExcept(anyLong(), anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void approvedBookingsTest() {
+        booking.setOwnerId(owner.getId());
+
+        Booking approvedBooking = new Booking();
+        approvedBooking.setId(2L);
+        approvedBooking.setOwnerId(owner.getId());
+        approvedBooking.setStatus(StatusBooking.APPROVED);
+
+        Booking otherBooking = new Booking();
+        otherBooking.setId(3L);
+        otherBooking.setOwnerId(booker.getId());
+        otherBooking.setStatus(StatusBooking.WAITING);
+
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(bookingRepository.findAllById(List.of(1L, 2L, 3L, 4L)))
+                .thenReturn(List.of(booking, approvedBooking, otherBooking));
+        when(bookingRepository.updateStatusByOwner(any(), anyLong(), any(), any())).thenReturn(1);
+
+        List<BookingBatchResultDto> result = bookingService.approvedBookings(owner.getId(), List.of(1L, 2L, 3L, 4L), true);
+
+        assertEquals(4, result.size());
+        assertEquals(StatusBooking.APPROVED, result.get(0).getStatus());
+        assertEquals("Бронирование уже подтверждено", result.get(1).getError());
+        assertEquals("Вы не являетесь владельцем вещи", result.get(2).getError());
+        assertEquals("Бронирование не найдено", result.get(3).getError());
+        verify(bookingRepository, times(1))
+                .updateStatusByOwner(Set.of(1L), owner.getId(), StatusBooking.APPROVED,
+                        List.of(StatusBooking.APPROVED, StatusBooking.CANCELED));
+        verify(bookingRepository, never()).save(any(Booking.class));
+    }
+
+    @Test
+    void approvedBookingsTestOverlapping() {
+        booking.setOwnerId(owner.getId());
+
+        Booking overlapping = new Booking();
+        overlapping.setId(2L);
+        overlapping.setItem(item);
+        overlapping.setOwnerId(owner.getId());
+        overlapping.setStart(booking.getStart().plusMinutes(30));
+        overlapping.setEnd(booking.getEnd().plusMinutes(30));
+        overlapping.setStatus(StatusBooking.WAITING);
+
+        Booking conflicting = new Booking();
+        conflicting.setId(3L);
+        conflicting.setItem(item);
+        conflicting.setOwnerId(owner.getId());
+        conflicting.setStart(booking.getEnd().plusDays(1));
+        conflicting.setEnd(booking.getEnd().plusDays(2));
+        conflicting.setStatus(StatusBooking.WAITING);
+
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(bookingRepository.findAllById(List.of(1L, 2L, 3L)))
+                .thenReturn(List.of(booking, overlapping, conflicting));
+        when(bookingRepository.findOverlappingIds(Set.of(1L, 2L, 3L),
+                List.of(StatusBooking.WAITING, StatusBooking.APPROVED))).thenReturn(List.of(3L));
+        when(itemRepository.findAllById(Set.of(item.getId()))).thenReturn(List.of(item));
+        when(bookingRepository.updateStatusByOwner(any(), anyLong(), any(), any())).thenReturn(1);
+
+        List<BookingBatchResultDto> result = bookingService.approvedBookings(owner.getId(), List.of(1L, 2L, 3L), true);
+
+        assertEquals(StatusBooking.APPROVED, result.get(0).getStatus());
+        assertNotNull(result.get(1).getError());
+        assertNotNull(result.get(2).getError());
+        verify(itemRepository, times(1)).lockForBooking(item);
+        verify(bookingRepository, times(1))
+                .updateStatusByOwner(Set.of(1L), owner.getId(), StatusBooking.APPROVED,
+                        List.of(StatusBooking.APPROVED, StatusBooking.CANCELED));
+    }
+
+    @Test
+    void approvedBookingsTestChangedAfterRead() {
+        booking.setOwnerId(owner.getId());
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(bookingRepository.findAllById(List.of(1L))).thenReturn(List.of(booking));
+        when(bookingRepository.updateStatusByOwner(any(), anyLong(), any(), any())).thenReturn(0);
+
+        assertThrows(
+                ConflictException.class,
+                () -> bookingService.approvedBookings(owner.getId(), List.of(1L), false)
+        );
+    }
+
+    @Test
+    void approvedBookingsTestNothingToUpdate() {
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(bookingRepository.findAllById(List.of(5L))).thenReturn(List.of());
+
+        List<BookingBatchResultDto> result = bookingService.approvedBookings(owner.getId(), List.of(5L), false);
+
+        assertNull(result.get(0).getStatus());
+        verify(bookingRepository, never()).updateStatusByOwner(any(), anyLong(), any(), any());
+    }
+
     @Test
     void approvedBookingTestCorrect() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
         when(bookingRepository.findById(anyLong())).thenReturn(Optional.of(booking));
 
         bookingService.approvedBooking(owner.getId(), booking.getId(), true);
@@ -250,7 +426,7 @@ class BookingServiceImplTest {
 
     @Test
     void getByIdTestIncorrectUser() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(userRepository.existsById(anyLong())).thenReturn(false);
 
         assertThrows(
                 NotFoundException.class,
@@ -260,7 +436,7 @@ class BookingServiceImplTest {
 
     @Test
     void getByIdTestIncorrectBooking() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
         when(bookingRepository.findById(anyLong())).thenReturn(Optional.empty());
 
         assertThrows(
@@ -270,30 +446,38 @@ class BookingServiceImplTest {
     }
 
     @Test
-    void getByIdTestIncorrectItem() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+    void getByIdTestDoesNotRefetchItem() {
+        when(userRepository.existsById(anyLong())).thenReturn(true);
         when(bookingRepository.findById(anyLong())).thenReturn(Optional.of(booking));
-        when(itemRepository.findById(anyLong())).thenReturn(Optional.empty());
 
-        assertThrows(
-                NotFoundException.class,
-                () -> bookingService.getById(booker.getId(), booking.getId())
-        );
+        bookingService.getById(booker.getId(), booking.getId());
+
+        verify(itemRepository, never()).findById(anyLong());
     }
 
     @Test
     void getByIdTestIncorrectBookerOrOwner() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
         when(bookingRepository.findById(anyLong())).thenReturn(Optional.of(booking));
-        when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
 
         assertNotEquals(booking.getBooker().getId(), bookingService.getById(booker.getId(), booking.getId()).getId());
         assertEquals(item.getOwner().getId(), bookingService.getById(booker.getId(), booking.getId()).getId());
     }
 
+    @Test
+    void getAllByBookerTestCachesUserCheck() {
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+
+        bookingService.getAllByBooker(booker.getId(), "ALL", pageable);
+        bookingService.getAllByBooker(booker.getId(), "ALL", pageable);
+
+        verify(userRepository, times(1)).existsById(booker.getId());
+        verify(userRepository, never()).findById(anyLong());
+    }
+
     @Test
     void getAllByBookerTestIncorrectUser() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(userRepository.existsById(anyLong())).thenReturn(false);
 
         assertThrows(
                 NotFoundException.class,
@@ -304,7 +488,7 @@ class BookingServiceImplTest {
 
     @Test
     void getAllByBookerTestIncorrectState() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
 
         assertThrows(
                 ValidationException.class,
@@ -314,90 +498,80 @@ class BookingServiceImplTest {
 
     @Test
     void getAllByBookerTestStateAll() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
-        when(bookingRepository.findAllByBookerIdOrderByStartDesc(anyLong(), any())).thenReturn(List.of(booking));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(bookingRepository.findAllByBookerIdOrderByStartDesc(anyLong(), any())).thenReturn(List.of(bookingShortDto));
 
-        List<BookingDto> bookings = bookingService.getAllByBooker(booker.getId(), "ALL", pageable);
+        List<BookingShortDto> bookings = bookingService.getAllByBooker(booker.getId(), "ALL", pageable);
         assertEquals(1, bookings.size());
 
         verify(bookingRepository, never()).findAllByBookerIdAndStatusOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findAllByBookerIdAndEndBeforeOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findAllByBookerIdAndStartAfterOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findCurrentBookerBookings(any(), any(), any());
+        verify(bookingRepository, never()).findAllByBookerIdAndPhaseOrderByStartDesc(any(), any(), any());
     }
 
     @Test
     void getAllByBookerTestStateAllWaitingApprovedRejectedCancelled() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
         when(bookingRepository.findAllByBookerIdAndStatusOrderByStartDesc(anyLong(), any(), any(Pageable.class)))
-                .thenReturn(List.of(booking));
+                .thenReturn(List.of(bookingShortDto));
 
-        List<BookingDto> bookingsWaiting = bookingService.getAllByBooker(booker.getId(), "WAITING", pageable);
+        List<BookingShortDto> bookingsWaiting = bookingService.getAllByBooker(booker.getId(), "WAITING", pageable);
         assertEquals(1, bookingsWaiting.size());
 
-        List<BookingDto> bookingsApproved = bookingService.getAllByBooker(booker.getId(), "APPROVED", pageable);
+        List<BookingShortDto> bookingsApproved = bookingService.getAllByBooker(booker.getId(), "APPROVED", pageable);
         assertEquals(1, bookingsApproved.size());
 
-        List<BookingDto> bookingsRejected = bookingService.getAllByBooker(booker.getId(), "REJECTED", pageable);
+        List<BookingShortDto> bookingsRejected = bookingService.getAllByBooker(booker.getId(), "REJECTED", pageable);
         assertEquals(1, bookingsRejected.size());
 
-        List<BookingDto> bookingsCancelled = bookingService.getAllByBooker(booker.getId(), "CANCELED", pageable);
+        List<BookingShortDto> bookingsCancelled = bookingService.getAllByBooker(booker.getId(), "CANCELED", pageable);
         assertEquals(1, bookingsCancelled.size());
 
         verify(bookingRepository, never()).findAllByBookerIdOrderByStartDesc(any(), any());
-        verify(bookingRepository, never()).findAllByBookerIdAndEndBeforeOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findAllByBookerIdAndStartAfterOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findCurrentBookerBookings(any(), any(), any());
+        verify(bookingRepository, never()).findAllByBookerIdAndPhaseOrderByStartDesc(any(), any(), any());
     }
 
     @Test
     void getAllByBookerTestStatePast() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
-        when(bookingRepository.findAllByBookerIdAndEndBeforeOrderByStartDesc(anyLong(), any(LocalDateTime.class),
-                any(Pageable.class))).thenReturn(List.of(booking));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(bookingRepository.findAllByBookerIdAndPhaseOrderByStartDesc(anyLong(), eq(BookingPhase.PAST),
+                any(Pageable.class))).thenReturn(List.of(bookingShortDto));
 
-        List<BookingDto> bookings = bookingService.getAllByBooker(booker.getId(), "PAST", pageable);
+        List<BookingShortDto> bookings = bookingService.getAllByBooker(booker.getId(), "PAST", pageable);
         assertEquals(1, bookings.size());
 
         verify(bookingRepository, never()).findAllByBookerIdOrderByStartDesc(any(), any());
         verify(bookingRepository, never()).findAllByBookerIdAndStatusOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findAllByBookerIdAndStartAfterOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findCurrentBookerBookings(any(), any(), any());
     }
 
     @Test
     void getAllByBookerTestStateFuture() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
-        when(bookingRepository.findAllByBookerIdAndStartAfterOrderByStartDesc(anyLong(), any(LocalDateTime.class),
-                any(Pageable.class))).thenReturn(List.of(booking));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(bookingRepository.findAllByBookerIdAndPhaseOrderByStartDesc(anyLong(), eq(BookingPhase.FUTURE),
+                any(Pageable.class))).thenReturn(List.of(bookingShortDto));
 
-        List<BookingDto> bookings = bookingService.getAllByBooker(booker.getId(), "FUTURE", pageable);
+        List<BookingShortDto> bookings = bookingService.getAllByBooker(booker.getId(), "FUTURE", pageable);
         assertEquals(1, bookings.size());
 
         verify(bookingRepository, never()).findAllByBookerIdOrderByStartDesc(any(), any());
         verify(bookingRepository, never()).findAllByBookerIdAndStatusOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findAllByBookerIdAndEndBeforeOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findCurrentBookerBookings(any(), any(), any());
     }
 
     @Test
     void getAllByBookerTestStateCurrent() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
-        when(bookingRepository.findCurrentBookerBookings(anyLong(), any(LocalDateTime.class),
-                any(Pageable.class))).thenReturn(List.of(booking));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(bookingRepository.findAllByBookerIdAndPhaseOrderByStartDesc(anyLong(), eq(BookingPhase.CURRENT),
+                any(Pageable.class))).thenReturn(List.of(bookingShortDto));
 
-        List<BookingDto> bookings = bookingService.getAllByBooker(booker.getId(), "CURRENT", pageable);
+        List<BookingShortDto> bookings = bookingService.getAllByBooker(booker.getId(), "CURRENT", pageable);
         assertEquals(1, bookings.size());
 
         verify(bookingRepository, never()).findAllByBookerIdOrderByStartDesc(any(), any());
         verify(bookingRepository, never()).findAllByBookerIdAndStatusOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findAllByBookerIdAndEndBeforeOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findAllByBookerIdAndStartAfterOrderByStartDesc(any(), any(), any());
     }
 
     @Test
     void getAllByOwnerTestIncorrectUser() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(userRepository.existsById(anyLong())).thenReturn(false);
 
         assertThrows(
                 NotFoundException.class,
@@ -408,7 +582,7 @@ class BookingServiceImplTest {
 
     @Test
     void getAllByOwnerTestIncorrectItem() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
         when(itemRepository.findAllByOwnerIdOrderByIdAsc(anyLong())).thenReturn(List.of());
 
         assertThrows(
@@ -419,7 +593,7 @@ class BookingServiceImplTest {
 
     @Test
     void getAllByOwnerTestIncorrectState() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
 
         assertThrows(
                 ValidationException.class,
@@ -429,93 +603,140 @@ class BookingServiceImplTest {
 
     @Test
     void getAllByOwnerTestStateAll() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
         when(itemRepository.findAllByOwnerIdOrderByIdAsc(anyLong())).thenReturn(List.of(item));
-        when(bookingRepository.findAllByItemOwnerIdOrderByStartDesc(anyLong(), any())).thenReturn(List.of(booking));
+        when(bookingRepository.findAllByOwnerIdOrderByStartDesc(anyLong(), any())).thenReturn(List.of(bookingShortDto));
 
-        List<BookingDto> bookings = bookingService.getAllByOwner(owner.getId(), "ALL", pageable);
+        List<BookingShortDto> bookings = bookingService.getAllByOwner(owner.getId(), "ALL", pageable);
         assertEquals(1, bookings.size());
 
-        verify(bookingRepository, never()).findAllByItemOwnerIdAndStatusOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findAllByItemOwnerIdAndEndBeforeOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findAllByItemOwnerIdAndStartAfterOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findCurrentOwnerBookings(any(), any(), any());
+        verify(bookingRepository, never()).findAllByOwnerIdAndStatusOrderByStartDesc(any(), any(), any());
+        verify(bookingRepository, never()).findAllByOwnerIdAndPhaseOrderByStartDesc(any(), any(), any());
     }
 
     @Test
     void getAllByOwnerTestStateAllWaitingApprovedRejectedCancelled() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
         when(itemRepository.findAllByOwnerIdOrderByIdAsc(anyLong())).thenReturn(List.of(item));
 
-        when(bookingRepository.findAllByItemOwnerIdAndStatusOrderByStartDesc(anyLong(), any(), any(Pageable.class)))
-                .thenReturn(List.of(booking));
+        when(bookingRepository.findAllByOwnerIdAndStatusOrderByStartDesc(anyLong(), any(), any(Pageable.class)))
+                .thenReturn(List.of(bookingShortDto));
 
-        List<BookingDto> bookingsWaiting = bookingService.getAllByOwner(owner.getId(), "WAITING", pageable);
+        List<BookingShortDto> bookingsWaiting = bookingService.getAllByOwner(owner.getId(), "WAITING", pageable);
         assertEquals(1, bookingsWaiting.size());
 
-        List<BookingDto> bookingsApproved = bookingService.getAllByOwner(owner.getId(), "APPROVED", pageable);
+        List<BookingShortDto> bookingsApproved = bookingService.getAllByOwner(owner.getId(), "APPROVED", pageable);
         assertEquals(1, bookingsApproved.size());
 
-        List<BookingDto> bookingsRejected = bookingService.getAllByOwner(owner.getId(), "REJECTED", pageable);
+        List<BookingShortDto> bookingsRejected = bookingService.getAllByOwner(owner.getId(), "REJECTED", pageable);
         assertEquals(1, bookingsRejected.size());
 
-        List<BookingDto> bookingsCancelled = bookingService.getAllByOwner(owner.getId(), "CANCELED", pageable);
+        List<BookingShortDto> bookingsCancelled = bookingService.getAllByOwner(owner.getId(), "CANCELED", pageable);
         assertEquals(1, bookingsCancelled.size());
 
-        verify(bookingRepository, never()).findAllByItemOwnerIdOrderByStartDesc(any(), any());
-        verify(bookingRepository, never()).findAllByItemOwnerIdAndEndBeforeOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findAllByItemOwnerIdAndStartAfterOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findCurrentOwnerBookings(any(), any(), any());
+        verify(bookingRepository, never()).findAllByOwnerIdOrderByStartDesc(any(), any());
+        verify(bookingRepository, never()).findAllByOwnerIdAndPhaseOrderByStartDesc(any(), any(), any());
     }
 
     @Test
     void getAllByOwnerTestStatePast() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
         when(itemRepository.findAllByOwnerIdOrderByIdAsc(anyLong())).thenReturn(List.of(item));
 
-        when(bookingRepository.findAllByItemOwnerIdAndEndBeforeOrderByStartDesc(anyLong(), any(LocalDateTime.class),
-                any(Pageable.class))).thenReturn(List.of(booking));
+        when(bookingRepository.findAllByOwnerIdAndPhaseOrderByStartDesc(anyLong(), eq(BookingPhase.PAST),
+                any(Pageable.class))).thenReturn(List.of(bookingShortDto));
 
-        List<BookingDto> bookings = bookingService.getAllByOwner(owner.getId(), "PAST", pageable);
+        List<BookingShortDto> bookings = bookingService.getAllByOwner(owner.getId(), "PAST", pageable);
         assertEquals(1, bookings.size());
 
-        verify(bookingRepository, never()).findAllByItemOwnerIdOrderByStartDesc(any(), any());
-        verify(bookingRepository, never()).findAllByItemOwnerIdAndStatusOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findAllByItemOwnerIdAndStartAfterOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findCurrentOwnerBookings(any(), any(), any());
+        verify(bookingRepository, never()).findAllByOwnerIdOrderByStartDesc(any(), any());
+        verify(bookingRepository, never()).findAllByOwnerIdAndStatusOrderByStartDesc(any(), any(), any());
     }
 
     @Test
     void getAllByOwnerTestStateFuture() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
         when(itemRepository.findAllByOwnerIdOrderByIdAsc(anyLong())).thenReturn(List.of(item));
 
-        when(bookingRepository.findAllByItemOwnerIdAndStartAfterOrderByStartDesc(anyLong(), any(LocalDateTime.class),
-                any(Pageable.class))).thenReturn(List.of(booking));
+        when(bookingRepository.findAllByOwnerIdAndPhaseOrderByStartDesc(anyLong(), eq(BookingPhase.FUTURE),
+                any(Pageable.class))).thenReturn(List.of(bookingShortDto));
 
-        List<BookingDto> bookings = bookingService.getAllByOwner(owner.getId(), "FUTURE", pageable);
+        List<BookingShortDto> bookings = bookingService.getAllByOwner(owner.getId(), "FUTURE", pageable);
         assertEquals(1, bookings.size());
 
-        verify(bookingRepository, never()).findAllByItemOwnerIdOrderByStartDesc(any(), any());
-        verify(bookingRepository, never()).findAllByItemOwnerIdAndStatusOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findAllByItemOwnerIdAndEndBeforeOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findCurrentOwnerBookings(any(), any(), any());
+        verify(bookingRepository, never()).findAllByOwnerIdOrderByStartDesc(any(), any());
+        verify(bookingRepository, never()).findAllByOwnerIdAndStatusOrderByStartDesc(any(), any(), any());
     }
 
     @Test
     void getAllByOwnerTestStateCurrent() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
         when(itemRepository.findAllByOwnerIdOrderByIdAsc(anyLong())).thenReturn(List.of(item));
 
-        when(bookingRepository.findCurrentOwnerBookings(anyLong(), any(LocalDateTime.class),
-                any(Pageable.class))).thenReturn(List.of(booking));
+        when(bookingRepository.findAllByOwnerIdAndPhaseOrderByStartDesc(anyLong(), eq(BookingPhase.CURRENT),
+                any(Pageable.class))).thenReturn(List.of(bookingShortDto));
 
-        List<BookingDto> bookings = bookingService.getAllByOwner(owner.getId(), "CURRENT", pageable);
+        List<BookingShortDto> bookings = bookingService.getAllByOwner(owner.getId(), "CURRENT", pageable);
         assertEquals(1, bookings.size());
 
-        verify(bookingRepository, never()).findAllByItemOwnerIdOrderByStartDesc(any(), any());
-        verify(bookingRepository, never()).findAllByItemOwnerIdAndStatusOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findAllByItemOwnerIdAndEndBeforeOrderByStartDesc(any(), any(), any());
-        verify(bookingRepository, never()).findAllByItemOwnerIdAndStartAfterOrderByStartDesc(any(), any(), any());
+        verify(bookingRepository, never()).findAllByOwnerIdOrderByStartDesc(any(), any());
+        verify(bookingRepository, never()).findAllByOwnerIdAndStatusOrderByStartDesc(any(), any(), any());
+    }
+
+    @Test
+    void getAllByBookerAfterTestStateAll() {
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(bookingRepository.findBookerBookingsAfter(anyLong(), any(), anyLong(), any())).thenReturn(List.of(bookingShortDto));
+
+        List<BookingShortDto> result = bookingService.getAllByBookerAfter(booker.getId(), "all", BookingCursor.FIRST, 5);
+
+        assertEquals(1, result.size());
+        verify(bookingRepository, times(1)).findBookerBookingsAfter(booker.getId(),
+                BookingCursor.FIRST.getStart(), BookingCursor.FIRST.getId(), PageRequest.of(0, 5));
+        verify(bookingRepository, never()).findAllByBookerIdOrderByStartDesc(any(), any());
+    }
+
+    @Test
+    void getAllByBookerAfterTestStateWaiting() {
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        BookingCursor cursor = BookingCursor.of(bookingShortDto);
+
+        bookingService.getAllByBookerAfter(booker.getId(), "WAITING", cursor, 5);
+
+        verify(bookingRepository, times(1)).findBookerBookingsByStatusAfter(booker.getId(), StatusBooking.WAITING,
+                booking.getStart(), booking.getId(), PageRequest.of(0, 5));
+    }
+
+    @Test
+    void getAllByBookerAfterTestIncorrectState() {
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+
+        assertThrows(
+                ValidationException.class,
+                () -> bookingService.getAllByBookerAfter(booker.getId(), "UNSUPPORTED", BookingCursor.FIRST, 5)
+        );
+    }
+
+    @Test
+    void getAllByOwnerAfterTestIncorrectItem() {
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(itemRepository.findAllByOwnerIdOrderByIdAsc(anyLong())).thenReturn(List.of());
+
+        assertThrows(
+                ValidationException.class,
+                () -> bookingService.getAllByOwnerAfter(owner.getId(), "ALL", BookingCursor.FIRST, 5)
+        );
+    }
+
+    @Test
+    void getAllByOwnerAfterTestStateCurrent() {
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(itemRepository.findAllByOwnerIdOrderByIdAsc(anyLong())).thenReturn(List.of(item));
+
+        bookingService.getAllByOwnerAfter(owner.getId(), "CURRENT", BookingCursor.FIRST, 5);
+
+        verify(bookingRepository, times(1)).findOwnerBookingsByPhaseAfter(owner.getId(), BookingPhase.CURRENT,
+                BookingCursor.FIRST.getStart(), BookingCursor.FIRST.getId(), PageRequest.of(0, 5));
+        verify(bookingRepository, never()).findAllByOwnerIdAndPhaseOrderByStartDesc(any(), any(), any());
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,11 @@
 package ru.practicum.shareit.exception;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
 import ru.practicum.shareit.utils.ErrorMessage;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 class ErrorHandlerTest {
 
@@ -22,4 +24,18 @@ class ErrorHandlerTest {
         ErrorMessage message = errorHandler.handleExceptionNotFound(exception);
         assertEquals(exception.getMessage(), message.getError());
     }
-}
\ No newline at end of file
+
+    @Test
+    void handleExceptionConflict() {
+        ConflictException exception = new ConflictException("conflictException");
+        ErrorMessage message = errorHandler.handleExceptionConflict(exception);
+        assertEquals(exception.getMessage(), message.getError());
+    }
+
+    @Test
+    void handleExceptionDataIntegrity() {
+        DataIntegrityViolationException exception = new DataIntegrityViolationException("ex_bookings_item_period");
+        ErrorMessage message = errorHandler.handleExceptionDataIntegrity(exception);
+        assertNotNull(message.getError());
+    }
+}
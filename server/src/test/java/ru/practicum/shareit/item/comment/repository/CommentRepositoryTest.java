@@ -67,6 +67,31 @@ class CommentRepositoryTest {
         assertEquals(2, comments.size());
     }
 
+    @Test
+    void testFindAllByItemIdIn() {
+        Item item2 = new Item();
+        item2.setName("item2Name");
+        item2.setDescription("item2Description");
+        item2.setOwner(user);
+        item2.setAvailable(true);
+        item2.setRequest(null);
+        itemRepository.save(item2);
+
+        Comment comment = new Comment();
+        comment.setText("3comment");
+        comment.setItem(item2);
+        comment.setAuthor(user);
+        comment.setCreationDate(LocalDateTime.now());
+        commentRepository.save(comment);
+
+        List<Comment> comments = commentRepository.findAllByItemIdIn(List.of(item.getId(), item2.getId()));
+        assertEquals(3, comments.size());
+
+        comments = commentRepository.findAllByItemIdIn(List.of(item2.getId()));
+        assertEquals(1, comments.size());
+        assertEquals("3comment", comments.get(0).getText());
+    }
+
     @AfterEach
     void tearDown() {
         commentRepository.deleteAll();
@@ -5,19 +5,24 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.item.comment.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.service.ItemService;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.utils.CheckPage;
+import ru.practicum.shareit.utils.ETagGenerator;
 
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
@@ -26,6 +31,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = ItemController.class)
+@Import(ETagGenerator.class)
 class ItemControllerTest {
 
     @Autowired
@@ -59,6 +65,25 @@ class ItemControllerTest {
                 .getContentAsString();
     }
 
+    @Test
+    void createItemsTest() throws Exception {
+        ItemDto request = new ItemDto(null, "name", "description", null, true,
+                null, null, null, null, new ArrayList<>());
+
+        when(itemService.createAll(anyList(), anyLong())).thenReturn(List.of(request, request));
+
+        mockMvc.perform(post("/items/batch")
+                        .content(objectMapper.writeValueAsString(List.of(request, request)))
+                        .header("X-Sharer-User-Id", 1L)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated());
+
+        verify(itemService, times(1)).createAll(anyList(), eq(1L));
+        verify(itemService, never()).create(any(ItemDto.class), anyLong());
+    }
+
     @Test
     void createItemTestIncorrectId() throws Exception {
         ItemDto request = new ItemDto(1L, "name", "description", new User(), true,
@@ -200,6 +225,42 @@ class ItemControllerTest {
                 .getContentAsString();
     }
 
+    @Test
+    void getAvailabilityTest() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = from.plusDays(30);
+        when(itemService.getAvailability(anyLong(), anyLong(), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(new ItemAvailabilityDto(1L, from, to, List.of(),
+                        List.of(new ItemAvailabilityDto.Slot(from, to))));
+
+        mockMvc.perform(get("/items/{id}/availability", 1L)
+                        .param("from", from.toString())
+                        .param("to", to.toString())
+                        .header("X-Sharer-User-Id", 1L)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        verify(itemService, times(1)).getAvailability(1L, 1L, from, to);
+    }
+
+    @Test
+    void getAvailabilityTestBatch() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = from.plusDays(30);
+        when(itemService.getAvailability(anyLong(), anyList(), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of());
+
+        mockMvc.perform(get("/items/availability")
+                        .param("ids", "1,2,3")
+                        .param("from", from.toString())
+                        .param("to", to.toString())
+                        .header("X-Sharer-User-Id", 1L)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        verify(itemService, times(1)).getAvailability(1L, List.of(1L, 2L, 3L), from, to);
+    }
+
     @Test
     void searchByTextTest() throws Exception {
         mockMvc.perform(get("/items/search")
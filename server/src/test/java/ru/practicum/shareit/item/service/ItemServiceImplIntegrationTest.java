@@ -1,5 +1,7 @@
 package ru.practicum.shareit.item.service;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,9 +13,11 @@ import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.StatusBooking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.item.comment.dto.CommentDto;
 import ru.practicum.shareit.item.comment.model.Comment;
 import ru.practicum.shareit.item.comment.repository.CommentRepository;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
@@ -22,6 +26,7 @@ import ru.practicum.shareit.request.repository.RequestRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
+import javax.persistence.EntityManagerFactory;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -29,6 +34,8 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
 class ItemServiceImplIntegrationTest {
@@ -46,6 +53,8 @@ class ItemServiceImplIntegrationTest {
     private CommentRepository commentRepository;
     @Autowired
     private RequestRepository requestRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
 
     private final Pageable pageable = PageRequest.of(0, 5);
     private Item item;
@@ -124,6 +133,35 @@ class ItemServiceImplIntegrationTest {
         assertNotNull(result);
     }
 
+    @Test
+    @DirtiesContext
+    void createAllTest() {
+        List<ItemDto> itemDtos = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            itemDtos.add(new ItemDto(null, "batchItem" + i, "batchDescription", null, true,
+                    i % 2 == 0 ? itemRequest.getId() : null, null, null, null, new ArrayList<>()));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<ItemDto> result = itemService.createAll(itemDtos, user.getId());
+
+        assertEquals(120, result.size());
+        assertEquals(120, result.stream().map(ItemDto::getId).distinct().count());
+        assertEquals(itemRequest.getId(), result.get(0).getRequestId());
+        assertEquals(120, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() < 10);
+    }
+
+    @Test
+    @DirtiesContext
+    void createAllTestIncorrectRequest() {
+        List<ItemDto> itemDtos = List.of(new ItemDto(null, "batchItem", "batchDescription", null, true,
+                999L, null, null, null, new ArrayList<>()));
+
+        assertThrows(NotFoundException.class, () -> itemService.createAll(itemDtos, user.getId()));
+    }
+
     @Test
     @DirtiesContext
     void createCommentTest() {
@@ -147,6 +185,41 @@ class ItemServiceImplIntegrationTest {
         assertNotNull(result);
     }
 
+    @Test
+    @DirtiesContext
+    void getAvailabilityTest() {
+        Item other = new Item();
+        other.setName("otherName");
+        other.setDescription("otherDescription");
+        other.setOwner(user);
+        other.setAvailable(true);
+        itemRepository.save(other);
+
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = from.plusDays(30);
+        saveBooking(item, from.plusDays(1), from.plusDays(3), StatusBooking.APPROVED);
+        saveBooking(item, from.plusDays(2), from.plusDays(4), StatusBooking.WAITING);
+        saveBooking(item, from.plusDays(10), from.plusDays(12), StatusBooking.REJECTED);
+        saveBooking(item, from.plusDays(40), from.plusDays(42), StatusBooking.APPROVED);
+        saveBooking(other, from.minusDays(1), from.plusDays(1), StatusBooking.APPROVED);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<ItemAvailabilityDto> result = itemService.getAvailability(user.getId(),
+                List.of(item.getId(), other.getId()), from, to);
+        long statements = statistics.getPrepareStatementCount();
+
+        assertEquals(2, result.size());
+        assertEquals(1, result.get(0).getBusy().size());
+        assertEquals(from.plusDays(1), result.get(0).getBusy().get(0).getStart());
+        assertEquals(from.plusDays(4), result.get(0).getBusy().get(0).getEnd());
+        assertEquals(2, result.get(0).getFree().size());
+        assertEquals(from, result.get(1).getBusy().get(0).getStart());
+        assertEquals(1, result.get(1).getFree().size());
+        //Проверка пользователя, проверка вещей и один запрос интервалов для всех вещей
+        assertTrue(statements <= 3);
+    }
+
     @Test
     @DirtiesContext
     void getAllItemsByUserIdTest() {
@@ -154,6 +227,42 @@ class ItemServiceImplIntegrationTest {
         assertNotNull(result);
     }
 
+    //Страницы разного размера с бронированиями и отзывами у каждой вещи читаются одним и тем же числом запросов
+    @Test
+    @DirtiesContext
+    void getAllItemsByUserIdTestStatementsDoNotDependOnPageSize() {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 6; i++) {
+            Item pageItem = new Item();
+            pageItem.setName("pageItem" + i);
+            pageItem.setDescription("pageDescription");
+            pageItem.setOwner(user);
+            pageItem.setAvailable(true);
+            itemRepository.save(pageItem);
+            saveBooking(pageItem, now.minusDays(2), now.minusDays(1), StatusBooking.APPROVED);
+            saveBooking(pageItem, now.plusDays(1), now.plusDays(2), StatusBooking.APPROVED);
+            saveComment(pageItem);
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        //Первый вызов заполняет кэш проверки пользователя
+        itemService.getAllItemsByUserId(user.getId(), PageRequest.of(0, 1));
+
+        statistics.clear();
+        List<ItemDto> small = itemService.getAllItemsByUserId(user.getId(), PageRequest.of(0, 2));
+        long smallStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        List<ItemDto> large = itemService.getAllItemsByUserId(user.getId(), PageRequest.of(0, 7));
+        long largeStatements = statistics.getPrepareStatementCount();
+
+        assertEquals(2, small.size());
+        assertEquals(7, large.size());
+        assertEquals(1, large.get(6).getComments().size());
+        assertNotNull(large.get(6).getLastBooking());
+        assertNotNull(large.get(6).getNextBooking());
+        assertEquals(smallStatements, largeStatements);
+    }
+
     @Test
     @DirtiesContext
     void updateTest() {
@@ -174,4 +283,24 @@ class ItemServiceImplIntegrationTest {
         itemService.delete(item.getId());
         assertEquals(Optional.empty(), itemRepository.findById(item.getId()));
     }
-}
\ No newline at end of file
+
+    private void saveBooking(Item bookingItem, LocalDateTime start, LocalDateTime end, StatusBooking status) {
+        Booking booking = new Booking();
+        booking.setStart(start);
+        booking.setEnd(end);
+        booking.setItem(bookingItem);
+        booking.setBooker(requester);
+        booking.setOwnerId(user.getId());
+        booking.setStatus(status);
+        bookingRepository.save(booking);
+    }
+
+    private void saveComment(Item commentItem) {
+        Comment itemComment = new Comment();
+        itemComment.setText("pageComment");
+        itemComment.setItem(commentItem);
+        itemComment.setAuthor(requester);
+        itemComment.setCreationDate(LocalDateTime.now());
+        commentRepository.save(itemComment);
+    }
+}
@@ -1,12 +1,16 @@
 package ru.practicum.shareit.item.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.*;
+import org.springframework.transaction.PlatformTransactionManager;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingPeriod;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.StatusBooking;
@@ -17,6 +21,7 @@ import ru.practicum.shareit.item.comment.dto.CommentDto;
 import ru.practicum.shareit.item.comment.mapper.CommentMapper;
 import ru.practicum.shareit.item.comment.model.Comment;
 import ru.practicum.shareit.item.comment.repository.CommentRepository;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
@@ -25,14 +30,19 @@ import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.repository.RequestRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.utils.CheckExistence;
+import ru.practicum.shareit.utils.OptimisticRetry;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
@@ -40,6 +50,7 @@ import static org.mockito.Mockito.*;
 class ItemServiceImplTest {
 
     private ItemService itemService;
+    private CheckExistence checkExistence;
 
     @Mock
     private ItemRepository itemRepository;
@@ -70,8 +81,10 @@ class ItemServiceImplTest {
 
     @BeforeEach
     void setUp() {
+        checkExistence = new CheckExistence(userRepository, itemRepository, 100, Duration.ofMinutes(1));
         itemService = new ItemServiceImpl(itemRepository, userRepository, bookingRepository, commentRepository,
-                new ItemMapper(new BookingMapper()), new CommentMapper(), requestRepository);
+                new ItemMapper(new BookingMapper()), new CommentMapper(), requestRepository, checkExistence,
+                new OptimisticRetry(mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 1, Duration.ZERO));
 
         user = new User();
         user.setId(1L);
@@ -192,6 +205,33 @@ class ItemServiceImplTest {
         verify(itemRepository, times(1)).save(any(Item.class));
     }
 
+    @Test
+    void createAllTestCorrect() {
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(user));
+        when(requestRepository.findAllById(Set.of(1L))).thenReturn(List.of(itemRequest));
+        when(itemRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<ItemDto> result = itemService.createAll(List.of(itemDto, itemDto), user.getId());
+
+        assertEquals(2, result.size());
+        assertEquals(user, result.get(0).getOwner());
+        assertNull(result.get(0).getId());
+        verify(itemRepository, times(1)).saveAll(anyList());
+        verify(itemRepository, never()).save(any(Item.class));
+    }
+
+    @Test
+    void createAllTestIncorrectDescription() {
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(user));
+        itemDto.setDescription(" ");
+
+        assertThrows(
+                ValidationException.class,
+                () -> itemService.createAll(List.of(itemDto), user.getId())
+        );
+        verify(itemRepository, never()).saveAll(anyList());
+    }
+
 
 
     @Test
@@ -247,7 +287,7 @@ class ItemServiceImplTest {
 
     @Test
     void getItemTestIncorrectUser() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(userRepository.existsById(anyLong())).thenReturn(false);
 
         assertThrows(
                 NotFoundException.class,
@@ -257,7 +297,7 @@ class ItemServiceImplTest {
 
     @Test
     void getItemTestIncorrectItem() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(user));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
         when(itemRepository.findById(anyLong())).thenReturn(Optional.empty());
 
         assertThrows(
@@ -268,30 +308,30 @@ class ItemServiceImplTest {
 
     @Test
     void getItemTestCorrect() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(user));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
 
         itemService.getItem(user.getId(), item.getId());
 
-        verify(userRepository, times(1)).findById(anyLong());
+        verify(userRepository, times(1)).existsById(anyLong());
         verify(itemRepository, times(1)).findById(anyLong());
     }
 
     @Test
     void getAllItemsByUserIdTestIncorrectUser() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(userRepository.existsById(anyLong())).thenReturn(false);
 
         assertThrows(
                 NotFoundException.class,
                 () -> itemService.getAllItemsByUserId(user.getId(), pageable)
         );
 
-        verify(userRepository, times(1)).findById(anyLong());
+        verify(userRepository, times(1)).existsById(anyLong());
     }
 
     @Test
     void getAllItemsByUserIdTestIncorrectLast() throws NoSuchMethodException {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(user));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
         List<Item> items = new ArrayList<>();
         items.add(item);
         Page<Item> exp = new PageImpl<>(items, pageable, items.size());
@@ -307,7 +347,7 @@ class ItemServiceImplTest {
         lastBooking.setStatus(StatusBooking.APPROVED);
         bookings.add(lastBooking);
 
-        when(bookingRepository.findByItemIdInAndStatusNot(any(), any())).thenReturn(bookings);
+        when(bookingRepository.findByItemIdInAndStatusNotIn(any(), any())).thenReturn(bookings);
 
         assertEquals(1L, bookings.get(0).getItem().getId());
         assertEquals(1L, bookings.get(1).getItem().getId());
@@ -317,14 +357,14 @@ class ItemServiceImplTest {
 
         itemService.getAllItemsByUserId(user.getId(), pageable);
 
-        verify(userRepository, times(1)).findById(anyLong());
+        verify(userRepository, times(1)).existsById(anyLong());
         verify(itemRepository, times(1)).findAllByOwnerIdOrderByIdAsc(anyLong(), any());
-        verify(bookingRepository, times(1)).findByItemIdInAndStatusNot(any(), any());
+        verify(bookingRepository, times(1)).findByItemIdInAndStatusNotIn(any(), any());
     }
 
     @Test
     void getAllItemsByUserIdTestIncorrectNext() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(user));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
         List<Item> items = new ArrayList<>();
         items.add(item);
         Page<Item> exp = new PageImpl<>(items, pageable, items.size());
@@ -351,7 +391,7 @@ class ItemServiceImplTest {
         nextBooking.setStatus(StatusBooking.APPROVED);
         bookingsTest.add(nextBooking);
 
-        when(bookingRepository.findByItemIdInAndStatusNot(any(), any())).thenReturn(bookingsTest);
+        when(bookingRepository.findByItemIdInAndStatusNotIn(any(), any())).thenReturn(bookingsTest);
 
         assertEquals(1L, bookingsTest.get(0).getItem().getId());
         assertEquals(1L, bookingsTest.get(1).getItem().getId());
@@ -361,14 +401,14 @@ class ItemServiceImplTest {
 
         itemService.getAllItemsByUserId(user.getId(), pageable);
 
-        verify(userRepository, times(1)).findById(anyLong());
+        verify(userRepository, times(1)).existsById(anyLong());
         verify(itemRepository, times(1)).findAllByOwnerIdOrderByIdAsc(anyLong(), any());
-        verify(bookingRepository, times(1)).findByItemIdInAndStatusNot(any(), any());
+        verify(bookingRepository, times(1)).findByItemIdInAndStatusNotIn(any(), any());
     }
 
     @Test
     void getAllItemsByUserIdTestCorrect() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(user));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
 
         List<Item> items = new ArrayList<>();
         items.add(item);
@@ -381,13 +421,53 @@ class ItemServiceImplTest {
             ids.add(item.getId());
         }
 
-        when(bookingRepository.findByItemIdInAndStatusNot(any(), any())).thenReturn(bookings);
+        when(bookingRepository.findByItemIdInAndStatusNotIn(any(), any())).thenReturn(bookings);
+        comment.setItem(item);
+        when(commentRepository.findAllByItemIdIn(any())).thenReturn(List.of(comment));
 
-        itemService.getAllItemsByUserId(user.getId(), pageable);
+        List<ItemDto> result = itemService.getAllItemsByUserId(user.getId(), pageable);
 
-        verify(userRepository, times(1)).findById(anyLong());
+        assertEquals(1, result.get(0).getComments().size());
+        verify(userRepository, times(1)).existsById(anyLong());
         verify(itemRepository, times(1)).findAllByOwnerIdOrderByIdAsc(anyLong(), any());
-        verify(bookingRepository, times(1)).findByItemIdInAndStatusNot(any(), any());
+        verify(bookingRepository, times(1)).findByItemIdInAndStatusNotIn(any(), any());
+        verify(commentRepository, times(1)).findAllByItemIdIn(any());
+        verify(commentRepository, never()).getAllByItemId(anyLong());
+    }
+
+    @Test
+    void getAllItemsByUserIdTestLastAndNextForSeveralItems() {
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+
+        Item item2 = new Item();
+        item2.setId(2L);
+        item2.setName("item2Name");
+        item2.setDescription("item2Description");
+        item2.setOwner(user);
+        item2.setAvailable(true);
+
+        List<Item> items = List.of(item, item2);
+        Page<Item> exp = new PageImpl<>(items, pageable, items.size());
+        when(itemRepository.findAllByOwnerIdOrderByIdAsc(anyLong(), any())).thenReturn(exp);
+
+        Booking past = new Booking(10L, LocalDateTime.now().minusDays(3), LocalDateTime.now().minusDays(2),
+                item, booker, StatusBooking.APPROVED, user.getId(), 0L, null);
+        Booking latestPast = new Booking(11L, LocalDateTime.now().minusDays(2), LocalDateTime.now().minusDays(1),
+                item, booker, StatusBooking.APPROVED, user.getId(), 0L, null);
+        Booking farFuture = new Booking(12L, LocalDateTime.now().plusDays(5), LocalDateTime.now().plusDays(6),
+                item2, booker, StatusBooking.WAITING, user.getId(), 0L, null);
+        Booking nearFuture = new Booking(13L, LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(2),
+                item2, booker, StatusBooking.APPROVED, user.getId(), 0L, null);
+        when(bookingRepository.findByItemIdInAndStatusNotIn(any(), any()))
+                .thenReturn(List.of(past, farFuture, latestPast, nearFuture, booking));
+
+        List<ItemDto> result = itemService.getAllItemsByUserId(user.getId(), pageable);
+
+        assertEquals(2, result.size());
+        assertEquals(latestPast.getId(), result.get(0).getLastBooking().getId());
+        assertEquals(booking.getId(), result.get(0).getNextBooking().getId());
+        assertNull(result.get(1).getLastBooking());
+        assertEquals(nearFuture.getId(), result.get(1).getNextBooking().getId());
     }
 
     @Test
@@ -452,9 +532,112 @@ class ItemServiceImplTest {
         verify(itemRepository, times(1)).search(any(), any());
     }
 
+    @Test
+    void getAvailabilityTestMergesPeriods() {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = from.plusDays(10);
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(itemRepository.existsById(anyLong())).thenReturn(true);
+        when(bookingRepository.findPeriods(anyCollection(), any(LocalDateTime.class), any(LocalDateTime.class),
+                anyCollection())).thenReturn(List.of(
+                new BookingPeriod(1L, from.minusDays(1), from.plusDays(1)),
+                new BookingPeriod(1L, from.plusDays(1), from.plusDays(2)),
+                new BookingPeriod(1L, from.plusDays(3), from.plusDays(5)),
+                new BookingPeriod(1L, from.plusDays(4), from.plusDays(4).plusHours(1)),
+                new BookingPeriod(1L, from.plusDays(9), to.plusDays(1))));
+
+        ItemAvailabilityDto result = itemService.getAvailability(user.getId(), item.getId(), from, to);
+
+        assertEquals(3, result.getBusy().size());
+        assertEquals(from, result.getBusy().get(0).getStart());
+        assertEquals(from.plusDays(2), result.getBusy().get(0).getEnd());
+        assertEquals(from.plusDays(3), result.getBusy().get(1).getStart());
+        assertEquals(from.plusDays(5), result.getBusy().get(1).getEnd());
+        assertEquals(to, result.getBusy().get(2).getEnd());
+        assertEquals(2, result.getFree().size());
+        assertEquals(from.plusDays(2), result.getFree().get(0).getStart());
+        assertEquals(from.plusDays(3), result.getFree().get(0).getEnd());
+        assertEquals(from.plusDays(5), result.getFree().get(1).getStart());
+        assertEquals(from.plusDays(9), result.getFree().get(1).getEnd());
+        verify(bookingRepository, times(1)).findPeriods(List.of(item.getId()), from, to,
+                List.of(StatusBooking.WAITING, StatusBooking.APPROVED));
+    }
+
+    @Test
+    void getAvailabilityTestIncorrectPeriod() {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+        assertThrows(
+                ValidationException.class,
+                () -> itemService.getAvailability(user.getId(), item.getId(), from, from)
+        );
+        assertThrows(
+                ValidationException.class,
+                () -> itemService.getAvailability(user.getId(), item.getId(), from, from.plusYears(2))
+        );
+        verify(bookingRepository, never()).findPeriods(anyCollection(), any(), any(), anyCollection());
+    }
+
+    @Test
+    void getAvailabilityTestBatch() {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = from.plusDays(10);
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(itemRepository.countByIdIn(anyCollection())).thenReturn(2L);
+        when(bookingRepository.findPeriods(anyCollection(), any(LocalDateTime.class), any(LocalDateTime.class),
+                anyCollection())).thenReturn(List.of(new BookingPeriod(2L, from.plusDays(1), from.plusDays(2))));
+
+        List<ItemAvailabilityDto> result = itemService.getAvailability(user.getId(), List.of(1L, 2L, 1L), from, to);
+
+        assertEquals(2, result.size());
+        assertEquals(1L, result.get(0).getItemId());
+        assertTrue(result.get(0).getBusy().isEmpty());
+        assertEquals(1, result.get(0).getFree().size());
+        assertEquals(2L, result.get(1).getItemId());
+        assertEquals(1, result.get(1).getBusy().size());
+        assertEquals(2, result.get(1).getFree().size());
+        verify(bookingRepository, times(1)).findPeriods(anyCollection(), any(LocalDateTime.class),
+                any(LocalDateTime.class), anyCollection());
+    }
+
+    @Test
+    void getAvailabilityTestBatchIncorrectItem() {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        when(itemRepository.countByIdIn(anyCollection())).thenReturn(1L);
+
+        assertThrows(
+                NotFoundException.class,
+                () -> itemService.getAvailability(user.getId(), List.of(1L, 2L), from, from.plusDays(1))
+        );
+    }
+
     @Test
     void deleteTestIncorrectItem() {
-        when(itemRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(itemRepository.existsById(anyLong())).thenReturn(false);
+
+        assertThrows(
+                NotFoundException.class,
+                () -> itemService.delete(item.getId())
+        );
+    }
+
+    @Test
+    void deleteTestStaleExistenceCache() {
+        when(itemRepository.existsById(anyLong())).thenReturn(true, false);
+        checkExistence.checkItem(item.getId());
+
+        assertThrows(
+                NotFoundException.class,
+                () -> itemService.delete(item.getId())
+        );
+        verify(itemRepository, never()).deleteById(anyLong());
+    }
+
+    @Test
+    void deleteTestConcurrentDelete() {
+        when(itemRepository.existsById(anyLong())).thenReturn(true);
+        doThrow(new EmptyResultDataAccessException(1)).when(itemRepository).deleteById(anyLong());
 
         assertThrows(
                 NotFoundException.class,
@@ -464,11 +647,12 @@ class ItemServiceImplTest {
 
     @Test
     void deleteTestCorrect() {
-        when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.existsById(anyLong())).thenReturn(true);
 
         itemService.delete(item.getId());
 
-        verify(itemRepository, times(1)).findById(anyLong());
+        verify(itemRepository, times(1)).deleteById(item.getId());
+        verify(itemRepository, never()).findById(anyLong());
     }
 
     @Test
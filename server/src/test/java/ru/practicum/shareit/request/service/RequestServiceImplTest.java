@@ -14,13 +14,16 @@ import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.mapper.RequestMapper;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.repository.RequestRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.utils.CheckExistence;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -41,6 +44,9 @@ class RequestServiceImplTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private ItemRepository itemRepository;
+
     private final PageRequest pageRequest = PageRequest.of(0, 5, Sort.by("created").descending());
     private Item item;
     private ItemDto itemDto;
@@ -51,7 +57,8 @@ class RequestServiceImplTest {
     @BeforeEach
     void setUp() {
         requestService = new RequestServiceImpl(requestRepository,
-                new RequestMapper(new ItemMapper(new BookingMapper())), userRepository);
+                new RequestMapper(new ItemMapper(new BookingMapper())), userRepository,
+                new CheckExistence(userRepository, itemRepository, 100, Duration.ofMinutes(1)));
 
         user = new User();
         user.setId(1L);
@@ -142,19 +149,19 @@ class RequestServiceImplTest {
 
     @Test
     void getItemRequestsUserSortedTestIncorrectUser() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(userRepository.existsById(anyLong())).thenReturn(false);
 
         assertThrows(
                 NotFoundException.class,
                 () -> requestService.getItemRequestsUserSorted(user.getId(), pageRequest)
         );
 
-        verify(userRepository, times(1)).findById(anyLong());
+        verify(userRepository, times(1)).existsById(anyLong());
     }
 
     @Test
     void getItemRequestsUserSortedTestCorrect() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(user));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
 
         List<ItemRequest> itemRequests = new ArrayList<>();
         itemRequests.add(itemRequest);
@@ -163,25 +170,25 @@ class RequestServiceImplTest {
 
         requestService.getItemRequestsUserSorted(user.getId(), pageRequest);
 
-        verify(userRepository, times(1)).findById(anyLong());
+        verify(userRepository, times(1)).existsById(anyLong());
         verify(requestRepository, times(1)).findAllByRequesterId(anyLong(), any());
     }
 
     @Test
     void getAllItemRequestsSortedTestIncorrectUser() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(userRepository.existsById(anyLong())).thenReturn(false);
 
         assertThrows(
                 NotFoundException.class,
                 () -> requestService.getAllItemRequestsSorted(user.getId(), pageRequest)
         );
 
-        verify(userRepository, times(1)).findById(anyLong());
+        verify(userRepository, times(1)).existsById(anyLong());
     }
 
     @Test
     void getAllItemRequestsSortedTestCorrect() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(user));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
 
         List<ItemRequest> itemRequests = new ArrayList<>();
         itemRequests.add(itemRequest);
@@ -190,26 +197,26 @@ class RequestServiceImplTest {
 
         requestService.getAllItemRequestsSorted(user.getId(), pageRequest);
 
-        verify(userRepository, times(1)).findById(anyLong());
+        verify(userRepository, times(1)).existsById(anyLong());
         verify(requestRepository, times(1)).findAll(anyLong(), any());
 
     }
 
     @Test
     void getItemRequestTestIncorrectUser() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(userRepository.existsById(anyLong())).thenReturn(false);
 
         assertThrows(
                 NotFoundException.class,
                 () -> requestService.getItemRequest(itemRequest.getId(), user.getId())
         );
 
-        verify(userRepository, times(1)).findById(anyLong());
+        verify(userRepository, times(1)).existsById(anyLong());
     }
 
     @Test
     void getItemRequestTestIncorrectRequest() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(user));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
 
         when(requestRepository.findById(anyLong())).thenReturn(Optional.empty());
 
@@ -218,18 +225,18 @@ class RequestServiceImplTest {
                 () -> requestService.getItemRequest(itemRequest.getId(), user.getId())
         );
 
-        verify(userRepository, times(1)).findById(anyLong());
+        verify(userRepository, times(1)).existsById(anyLong());
         verify(requestRepository, times(1)).findById(anyLong());
     }
 
     @Test
     void getItemRequestTestCorrect() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(user));
+        when(userRepository.existsById(anyLong())).thenReturn(true);
         when(requestRepository.findById(anyLong())).thenReturn(Optional.of(itemRequest));
 
         requestService.getItemRequest(itemRequest.getId(), user.getId());
 
-        verify(userRepository, times(1)).findById(anyLong());
+        verify(userRepository, times(1)).existsById(anyLong());
         verify(requestRepository, times(1)).findById(anyLong());
     }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package ru.practicum.shareit.user.service;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,11 +10,13 @@ import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
+import javax.persistence.EntityManagerFactory;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
 class UserServiceImplIntegrationTest {
@@ -23,6 +27,9 @@ class UserServiceImplIntegrationTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private User user;
     private UserDto userDto;
 
@@ -66,6 +73,21 @@ class UserServiceImplIntegrationTest {
         assertNotNull(result);
     }
 
+    @Test
+    void updateUserRefreshesSecondLevelCache() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        UserDto cached = userService.createUser(new UserDto(null, "cachedName", "cached@mail.com"));
+        userService.getUser(cached.getId());
+        statistics.clear();
+
+        userService.updateUser(new UserDto(null, "newName", null), cached.getId());
+        UserDto result = userService.getUser(cached.getId());
+
+        assertEquals("newName", result.getName());
+        assertTrue(entityManagerFactory.getCache().contains(User.class, cached.getId()));
+        assertTrue(statistics.getSecondLevelCacheHitCount() > 0);
+    }
+
     @Test
     void deleteUser() {
         userService.deleteUser(user.getId());
@@ -74,7 +96,8 @@ class UserServiceImplIntegrationTest {
 
     @Test
     void findUserByEmail() {
-        userService.findUserByEmail(user.getEmail());
+        assertEquals(1, userService.findUserByEmail(user.getEmail()));
+        assertEquals(0, userService.findUserByEmail("unknown@mail.com"));
         assertNotNull(userRepository.findById(user.getId()));
         assertEquals("mailUser@mail.com", user.getEmail());
     }
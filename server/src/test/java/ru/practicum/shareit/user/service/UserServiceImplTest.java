@@ -6,11 +6,18 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.mapper.UserMapper;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.utils.CheckExistence;
 
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,16 +28,27 @@ import static org.mockito.Mockito.*;
 class UserServiceImplTest {
 
     private UserServiceImpl userService;
+    private CheckExistence checkExistence;
 
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private ItemRepository itemRepository;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private Cache cache;
+
     private User user;
     private UserDto userDto;
 
     @BeforeEach
     void setUp() {
-        userService = new UserServiceImpl(userRepository, new UserMapper());
+        checkExistence = new CheckExistence(userRepository, itemRepository, 100, Duration.ofMinutes(1));
+        userService = new UserServiceImpl(userRepository, new UserMapper(), checkExistence, entityManagerFactory);
 
         user = new User();
         user.setId(1L);
@@ -115,9 +133,28 @@ class UserServiceImplTest {
     @Test
     void deleteUserTestCorrect() {
         when(userRepository.findById(any())).thenReturn(Optional.of(user));
+        when(entityManagerFactory.getCache()).thenReturn(cache);
         userService.deleteUser(user.getId());
         verify(userRepository, times(1)).findById(any());
         verify(userRepository, times(1)).deleteById(any());
+        verify(cache, times(1)).evict(Item.class);
+        verify(cache, times(1)).evict(ItemRequest.class);
+    }
+
+    @Test
+    void deleteUserTestEvictsExistenceCache() {
+        when(userRepository.existsById(user.getId())).thenReturn(true, false);
+        when(userRepository.findById(any())).thenReturn(Optional.of(user));
+        when(entityManagerFactory.getCache()).thenReturn(cache);
+        checkExistence.checkUser(user.getId());
+
+        userService.deleteUser(user.getId());
+
+        assertThrows(
+                NotFoundException.class,
+                () -> checkExistence.checkUser(user.getId())
+        );
+        verify(userRepository, times(2)).existsById(user.getId());
     }
 
     @Test
@@ -125,10 +162,17 @@ class UserServiceImplTest {
         User testUser = new User();
         testUser.setEmail("mailUser@mail.com");
 
-        when(userRepository.findAll()).thenReturn(List.of(user));
+        when(userRepository.existsByEmail(testUser.getEmail())).thenReturn(true);
         assertEquals(testUser.getEmail(), user.getEmail());
-        userService.findUserByEmail(testUser.getEmail());
+        assertEquals(1, userService.findUserByEmail(testUser.getEmail()));
 
-        verify(userRepository, times(1)).findAll();
+        verify(userRepository, times(1)).existsByEmail(any());
+        verify(userRepository, never()).findAll();
+    }
+
+    @Test
+    void findUserByEmailTestNullEmail() {
+        assertEquals(0, userService.findUserByEmail(null));
+        verify(userRepository, never()).existsByEmail(any());
     }
 }
\ No newline at end of file